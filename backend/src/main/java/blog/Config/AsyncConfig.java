@@ -0,0 +1,77 @@
+package blog.Config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Background pipeline for notification fan-out. The queue is bounded: a full queue rejects the task, the
+    // post stays marked notifications_pending and NotificationFanOutService retries it later, so the fan-out
+    // never runs on the request thread.
+    @Bean
+    public ThreadPoolTaskExecutor notificationExecutor(
+            @Value("${notifications.fanout.threads:2}") int threads,
+            @Value("${notifications.fanout.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notification-fanout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Pushes new posts into the followers' timelines. Rejected tasks are retried by TimelineService from the
+    // posts still marked timeline_pending, like notifications.
+    @Bean
+    public ThreadPoolTaskExecutor timelineExecutor(
+            @Value("${timeline.fanout.threads:2}") int threads,
+            @Value("${timeline.fanout.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("timeline-fanout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // BCrypt runs here instead of on request threads. Threads and queue are small and bounded: a full queue
+    // rejects the task, and the caller answers 429 instead of tying up more request workers.
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${auth.hashing.threads:2}") int threads,
+            @Value("${auth.hashing.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    // Image resizing: decoding is CPU and memory heavy, so only a few images are worked on at once. A full
+    // queue drops the task; the image keeps being served as uploaded until the startup backfill catches it.
+    @Bean
+    public ThreadPoolTaskExecutor imageDerivativeExecutor(
+            @Value("${media.derivatives.threads:2}") int threads,
+            @Value("${media.derivatives.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-derivatives-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
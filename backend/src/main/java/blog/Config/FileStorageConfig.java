@@ -8,6 +8,8 @@ import org.springframework.context.annotation.Configuration;
 public class FileStorageConfig {
 
     private String uploadDir;
+    // Uploads wait here until they are handed to the MediaStore; unlike uploadDir it is never served
+    private String stagingDir;
 
     public String getUploadDir() {
         return uploadDir;
@@ -16,4 +18,12 @@ public class FileStorageConfig {
     public void setUploadDir(String uploadDir) {
         this.uploadDir = uploadDir;
     }
+
+    public String getStagingDir() {
+        return stagingDir;
+    }
+
+    public void setStagingDir(String stagingDir) {
+        this.stagingDir = stagingDir;
+    }
 }
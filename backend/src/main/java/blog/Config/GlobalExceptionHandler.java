@@ -2,7 +2,9 @@ package blog.Config;
 
 import java.util.stream.Collectors;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
 
 import blog.dto.response.ErrorResponseDto;
 import blog.exceptions.DuplicateReportException;
@@ -20,6 +23,7 @@ import blog.exceptions.InvalidFileSizeException;
 import blog.exceptions.InvalidTokenException;
 import blog.exceptions.ReportNotFoundException;
 import blog.exceptions.ResourceNotFoundException;
+import blog.exceptions.TooManyRequestsException;
 import blog.exceptions.UserAlreadyExistsException;
 import blog.exceptions.UserNotFoundException;
 import blog.exceptions.UserisBannedException;
@@ -81,6 +85,13 @@ public class GlobalExceptionHandler {
         return new ErrorResponseDto("File size Error", HttpStatus.BAD_REQUEST.value(), "Max Size must be less than 50MB");
     }
 
+    @ExceptionHandler(MultipartException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponseDto handleMultipart(MultipartException exception) {
+
+        return new ErrorResponseDto("Upload Error", HttpStatus.BAD_REQUEST.value(), "Malformed multipart request");
+    }
+
     //AUTHENTICATION && AUTHORIZATION EXCEPTIONS
     @ExceptionHandler({BadCredentialsException.class, InvalidCredentialsException.class})
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
@@ -96,6 +107,15 @@ public class GlobalExceptionHandler {
         return new ErrorResponseDto(exception.getMessage(), HttpStatus.FORBIDDEN.value(), "Your acount has been banned");
     }
 
+    // Overload protection: tell the client when to retry
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponseDto> handleTooManyRequests(TooManyRequestsException exception) {
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(new ErrorResponseDto(exception.getMessage(), HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests"));
+    }
+
     @ExceptionHandler(DisabledException.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ErrorResponseDto handleDisabled(DisabledException exception) {
@@ -0,0 +1,28 @@
+package blog.Config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.servlet.MultipartConfigElement;
+
+@Configuration
+public class MultipartConfig {
+
+    // The container writes every file part straight to the staging directory, which is not served, and stops
+    // reading as soon as a limit is passed. UploadService then renames the parts to their staged names.
+    @Bean
+    public MultipartConfigElement multipartConfigElement(FileStorageConfig fileStorageConfig,
+            @Value("${uploads.max-file-size:50MB}") DataSize maxFileSize,
+            @Value("${uploads.max-request-size:200MB}") DataSize maxRequestSize) throws IOException {
+        Path stagingDir = Files.createDirectories(Paths.get(fileStorageConfig.getStagingDir()));
+        return new MultipartConfigElement(stagingDir.toAbsolutePath().toString(), maxFileSize.toBytes(),
+                maxRequestSize.toBytes(), 0);
+    }
+}
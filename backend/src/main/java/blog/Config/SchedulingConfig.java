@@ -0,0 +1,10 @@
+package blog.Config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables the @Scheduled background jobs (counter reconciliation, cleanups)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
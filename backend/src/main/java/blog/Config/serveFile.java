@@ -1,16 +1,27 @@
 package blog.Config;
 
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.lang.NonNull;
+import org.springframework.util.unit.DataSize;
+
+import blog.controller.MediaFileServlet;
+import blog.storage.MediaStore;
 
 @Configuration
-public class serveFile implements WebMvcConfigurer {
-    @Override
-    public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/files/**").addResourceLocations("file:uploads/"); // local folder path
+public class serveFile {
 
-        registry.addResourceHandler("/files/posts/**").addResourceLocations("file:uploads/posts/");
+    // Uploaded files are served by their own servlet instead of Spring MVC resource handlers
+    @Bean
+    public ServletRegistrationBean<MediaFileServlet> mediaFileServlet(MediaStore mediaStore,
+            @Value("${media.cache.max-size:64MB}") DataSize cacheMaxSize,
+            @Value("${media.cache.max-file-size:256KB}") DataSize cacheMaxFileSize,
+            @Value("${media.cache.revalidate-ms:30000}") long revalidateMillis) {
+        MediaFileServlet servlet = new MediaFileServlet(mediaStore, cacheMaxSize.toBytes(),
+                cacheMaxFileSize.toBytes(), revalidateMillis);
+        ServletRegistrationBean<MediaFileServlet> registration = new ServletRegistrationBean<>(servlet, "/files/*");
+        registration.setName("mediaFileServlet");
+        return registration;
     }
 }
@@ -9,9 +9,11 @@ import org.springframework.web.bind.annotation.RestController;
 
 import blog.dto.response.AdminReportResponseDto;
 import blog.dto.response.AdminStatsResponseDto;
+import blog.dto.response.ConcurrencyLimitStatsResponseDto;
 import blog.dto.response.PageResponse;
 import blog.dto.response.PostResponseDto;
 import blog.dto.response.UserResponseDto;
+import blog.security.AdaptiveConcurrencyLimiter;
 import blog.services.AdminService;
 import blog.services.ReportService;
 
@@ -21,10 +23,13 @@ public class AdminDashboardController {
 
     private final AdminService adminService;
     private final ReportService reportService;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
-    public AdminDashboardController(AdminService adminService, ReportService reportService) {
+    public AdminDashboardController(AdminService adminService, ReportService reportService,
+            AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.adminService = adminService;
         this.reportService = reportService;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     // ------ Dashboard ----
@@ -34,6 +39,12 @@ public class AdminDashboardController {
         return ResponseEntity.ok(stats);
     }
 
+    // Current concurrency limit, requests in flight and shed counts per priority
+    @GetMapping("/load")
+    public ResponseEntity<ConcurrencyLimitStatsResponseDto> getLoadStats() {
+        return ResponseEntity.ok(concurrencyLimiter.getStats());
+    }
+
     // ----- User ----
     @GetMapping("/users")
     public ResponseEntity<PageResponse<UserResponseDto>> getAllUsers(
@@ -64,9 +75,12 @@ public class AdminDashboardController {
     @GetMapping("/posts")
     public ResponseEntity<PageResponse<PostResponseDto>> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
 
-        PageResponse<PostResponseDto> posts = adminService.getAllPosts(page, size);
+        PageResponse<PostResponseDto> posts = cursor != null
+                ? adminService.getAllPostsByCursor(cursor, size)
+                : adminService.getAllPosts(page, size);
         return ResponseEntity.ok(posts);
     }
 }
@@ -12,7 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 import blog.dto.request.BanUserRequestDto;
 import blog.dto.request.ResolveReportRequestDto;
 import blog.dto.request.UpdateUserRoleRequestDto;
-import blog.entity.User;
+import blog.security.AuthenticatedUser;
 import blog.services.ModerationService;
 import blog.services.ReportService;
 import jakarta.validation.Valid;
@@ -56,7 +56,7 @@ public class AdminModerationController {
             @PathVariable Long userId,
             @Valid @RequestBody UpdateUserRoleRequestDto requestDto,
             Authentication authentication) {
-        User admin = (User) authentication.getPrincipal();
+        AuthenticatedUser admin = (AuthenticatedUser) authentication.getPrincipal();
         moderationService.updateUserRole(userId, requestDto, admin.getId());
         return ResponseEntity.ok().build();
     }
@@ -66,8 +66,8 @@ public class AdminModerationController {
             @PathVariable Long reportId,
             @Valid @RequestBody ResolveReportRequestDto requestDto,
             Authentication authentication) {
-        User admin = (User) authentication.getPrincipal();
-        reportService.resolveReport(reportId, requestDto, admin);
+        AuthenticatedUser admin = (AuthenticatedUser) authentication.getPrincipal();
+        reportService.resolveReport(reportId, requestDto, admin.getId());
         return ResponseEntity.ok().build();
     }
 
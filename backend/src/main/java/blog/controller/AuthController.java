@@ -11,13 +11,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import blog.dto.request.LoginRequestDto;
+import blog.dto.request.RefreshTokenRequestDto;
 import blog.dto.request.RegisterRequestDto;
 import blog.dto.response.AuthResponseDto;
 import blog.dto.response.UserResponseDto;
 import blog.entity.User;
 import blog.exceptions.InvalidCredentialsException;
+import blog.security.AuthenticatedUser;
 import blog.security.JwtUtils;
 import blog.services.AuthService;
+import blog.services.RefreshTokenService;
 import blog.services.UserService;
 import jakarta.validation.Valid;
 
@@ -28,23 +31,22 @@ public class AuthController {
     private final AuthService authService;
     private final UserService userService;
     private final JwtUtils jwtUtils;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthController(AuthService authService, UserService userService, JwtUtils jwtUtils) {
+    public AuthController(AuthService authService, UserService userService, JwtUtils jwtUtils,
+            RefreshTokenService refreshTokenService) {
         this.authService = authService;
         this.userService = userService;
         this.jwtUtils = jwtUtils;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/register")
     public ResponseEntity<AuthResponseDto> register(@Valid @RequestBody RegisterRequestDto requestDto) {
         try {
             User savedUser = authService.saveUser(requestDto);
-            String jwt = jwtUtils.generateToken(savedUser);
 
-            UserResponseDto userResponse = UserResponseDto.fromEntity(savedUser);
-            AuthResponseDto authResponse = new AuthResponseDto(jwt, userResponse);
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(authResponse);
+            return ResponseEntity.status(HttpStatus.CREATED).body(issueTokens(savedUser));
         } catch (AuthenticationException e) {
             throw new InvalidCredentialsException(
                     "Registration successful but authentication failed. Please try logging in.");
@@ -54,12 +56,27 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<AuthResponseDto> login(@Valid @RequestBody LoginRequestDto loginDto) {
         User user = authService.login(loginDto);
-        String jwt = jwtUtils.generateToken(user);
 
-        UserResponseDto userResponseDto = UserResponseDto.fromEntity(user);
-        AuthResponseDto authResponse = new AuthResponseDto(jwt, userResponseDto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(issueTokens(user));
+    }
+
+    // The refresh token is rotated: the one sent is no longer valid afterwards
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponseDto> refresh(@Valid @RequestBody RefreshTokenRequestDto requestDto) {
+        User user = authService.refresh(requestDto.getRefreshToken());
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(authResponse);
+        return ResponseEntity.ok(issueTokens(user));
+    }
+
+    // Works with an expired access token too, the refresh token alone is enough to end the session
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshTokenRequestDto requestDto,
+            Authentication authentication) {
+        AuthenticatedUser principal = authentication != null
+                && authentication.getPrincipal() instanceof AuthenticatedUser user ? user : null;
+        authService.logout(principal, requestDto != null ? requestDto.getRefreshToken() : null);
+
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/me")
@@ -69,4 +86,11 @@ public class AuthController {
 
         return ResponseEntity.ok(userResponse);
     }
+
+    private AuthResponseDto issueTokens(User user) {
+        String jwt = jwtUtils.generateToken(user);
+        String refreshToken = refreshTokenService.issue(user.getId());
+
+        return new AuthResponseDto(jwt, refreshToken, UserResponseDto.fromEntity(user));
+    }
 }
@@ -16,7 +16,7 @@ import org.springframework.web.bind.annotation.RestController;
 import blog.dto.request.CreateCommentRequestDto;
 import blog.dto.response.CommentResponseDto;
 import blog.dto.response.PagedCommentResponseDto;
-import blog.entity.User;
+import blog.security.AuthenticatedUser;
 import blog.services.CommentService;
 import jakarta.validation.Valid;
 
@@ -36,8 +36,8 @@ public class CommentController {
             @Valid @RequestBody CreateCommentRequestDto createDto,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
-        CommentResponseDto response = commentService.createComment(postId, createDto, currentUser);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        CommentResponseDto response = commentService.createComment(postId, createDto, currentUser.getId());
 
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -46,9 +46,13 @@ public class CommentController {
     public ResponseEntity<PagedCommentResponseDto> getCommentsByPostId(
             @PathVariable Long postId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "5") int size) {
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(required = false) String cursor) {
 
-        PagedCommentResponseDto response = commentService.getCommentsByPostId(postId, page, size);
+        // Any cursor parameter (even empty, for the first page) switches to keyset pagination
+        PagedCommentResponseDto response = cursor != null
+                ? commentService.getCommentsByPostIdByCursor(postId, cursor, size)
+                : commentService.getCommentsByPostId(postId, page, size);
 
         return ResponseEntity.ok(response);
     }
@@ -59,7 +63,7 @@ public class CommentController {
             @Valid @RequestBody CreateCommentRequestDto updateDto,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         CommentResponseDto response = commentService.updateComment(commentId, updateDto, currentUser.getId());
 
         return ResponseEntity.ok(response);
@@ -70,7 +74,7 @@ public class CommentController {
             @PathVariable Long commentId,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         commentService.deleteComment(commentId, currentUser.getId());
 
         return ResponseEntity.noContent().build();
@@ -9,7 +9,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import blog.dto.response.LikeResponseDto;
-import blog.entity.User;
+import blog.security.AuthenticatedUser;
 import blog.services.LikeService;
 
 @RestController
@@ -24,8 +24,8 @@ public class LikeController {
 
     @PostMapping("/{postId}/like")
     public ResponseEntity<LikeResponseDto> toggleLike(@PathVariable Long postId, Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
-        LikeResponseDto response = likeService.toggleLike(postId, currentUser);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        LikeResponseDto response = likeService.toggleLike(postId, currentUser.getId());
 
         HttpStatus status = response.isLiked() ? HttpStatus.CREATED : HttpStatus.OK;
         return ResponseEntity.status(status).body(response);
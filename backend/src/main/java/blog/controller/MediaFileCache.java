@@ -0,0 +1,144 @@
+package blog.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import blog.storage.MediaStat;
+import blog.storage.MediaStore;
+
+// What MediaFileServlet knows about the files it serves: size, date and an ETag for each, and the bytes of
+// small ones (avatars, thumbnails) in a least-recently-used map bounded in total bytes. Uploads never change
+// under their key, so an entry is trusted without asking the MediaStore until revalidateMillis have passed; only
+// then is the file checked again, which also notices deleted files. With a remote store this also saves a
+// round trip per request.
+class MediaFileCache {
+
+    // Post media are named after the SHA-256 of their content, which is then the ETag for free. Other files
+    // (avatars, variants, media stored before content addressing) get one made of their size and date: their
+    // name is never reused for other content, and reading a whole video, or a full GET from S3, just to hash it
+    // would cost more than serving it.
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}");
+    // Entries of large files hold no bytes but still take memory
+    private static final int MAX_ENTRIES = 10_000;
+
+    static class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final String etag;
+        private final byte[] content;
+        private final long checkedAt;
+
+        private Entry(long size, long lastModified, String etag, byte[] content, long checkedAt) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.content = content;
+            this.checkedAt = checkedAt;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        // The whole file, or null when it is too large to be kept in memory
+        byte[] getContent() {
+            return content;
+        }
+    }
+
+    private final MediaStore mediaStore;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long revalidateMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    MediaFileCache(MediaStore mediaStore, long maxBytes, long maxEntryBytes, long revalidateMillis) {
+        this.mediaStore = mediaStore;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.revalidateMillis = revalidateMillis;
+    }
+
+    // Null when the file does not exist
+    Entry get(String key) throws IOException {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null && now - entry.checkedAt < revalidateMillis) {
+            return entry;
+        }
+
+        MediaStat stat = mediaStore.stat(key);
+        if (stat == null) {
+            remove(key);
+            return null;
+        }
+
+        long size = stat.getSize();
+        long lastModified = stat.getLastModified();
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            entry = new Entry(size, lastModified, entry.etag, entry.content, now);
+        } else {
+            entry = load(key, size, lastModified, now);
+        }
+        put(key, entry);
+        return entry;
+    }
+
+    private Entry load(String key, long size, long lastModified, long now) throws IOException {
+        byte[] content = null;
+        if (size <= maxEntryBytes) {
+            try (InputStream in = mediaStore.get(key)) {
+                content = in.readAllBytes();
+            }
+        }
+        String stem = stemOf(key);
+        String etag = CONTENT_ADDRESSED.matcher(stem).matches()
+                ? stem
+                : Long.toHexString(size) + "-" + Long.toHexString(lastModified);
+        return new Entry(size, lastModified, "\"" + etag + "\"", content, now);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        cachedBytes += contentSize(entry) - contentSize(previous);
+
+        // Least recently served first
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((cachedBytes > maxBytes || entries.size() > MAX_ENTRIES) && eldest.hasNext()) {
+            cachedBytes -= contentSize(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry previous = entries.remove(key);
+        cachedBytes -= contentSize(previous);
+    }
+
+    private static long contentSize(Entry entry) {
+        return entry != null && entry.content != null ? entry.content.length : 0;
+    }
+
+    private static String stemOf(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,362 @@
+package blog.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import blog.storage.MediaStore;
+import blog.util.FileStorageUtils;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Serves the uploads under /files/ outside Spring MVC, the path being the MediaStore key. When the store is
+// the local disk, whole files and single ranges are handed to Tomcat's sendfile: the servlet thread returns at
+// once and the connector's poller streams the file with FileChannel.transferTo, so a long video download or
+// seek does not hold a request thread. Other stores are streamed through, asking them for the range only.
+// Multi-range requests are answered as multipart/byteranges.
+// Upload names are never reused for other content, so responses are cacheable for a year (immutable) and
+// revalidations are answered from MediaFileCache with 304; small files are served from its memory as well.
+public class MediaFileServlet extends HttpServlet {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this a plain write is cheaper than registering the file with the poller (Tomcat uses the same)
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+    // More ranges than this, once coalesced, are answered with the whole file, as RFC 9110 allows
+    private static final int MAX_RANGES = 16;
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final MediaStore mediaStore;
+    private final MediaFileCache cache;
+
+    public MediaFileServlet(MediaStore mediaStore, long cacheMaxBytes, long cacheMaxEntryBytes,
+            long revalidateMillis) {
+        this.mediaStore = mediaStore;
+        this.cache = new MediaFileCache(mediaStore, cacheMaxBytes, cacheMaxEntryBytes, revalidateMillis);
+    }
+
+    // A byte range, both ends included
+    private static class Range {
+
+        private final long start;
+        private final long end;
+
+        private Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private long length() {
+            return end - start + 1;
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(request, response, true);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(request, response, false);
+    }
+
+    private void serve(HttpServletRequest request, HttpServletResponse response, boolean withBody) throws IOException {
+        String key = keyOf(request.getPathInfo());
+        MediaFileCache.Entry entry = key != null ? cache.get(key) : null;
+        if (entry == null && key != null) {
+            key = otherLayout(key);
+            entry = cache.get(key);
+        }
+        if (entry == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = entry.getSize();
+        String contentType = contentTypeOf(key);
+
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", entry.getEtag());
+        response.setDateHeader("Last-Modified", entry.getLastModified());
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+
+        if (notModified(request, entry)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<Range> ranges = rangesToServe(request, entry);
+        if (ranges == null) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        if (ranges.size() > 1) {
+            sendMultipart(key, entry, ranges, contentType, response, withBody);
+            return;
+        }
+
+        Range range = ranges.isEmpty() ? new Range(0, length - 1) : ranges.get(0);
+        if (!ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + length);
+        }
+        response.setContentType(contentType);
+        response.setContentLengthLong(range.length());
+        if (!withBody || range.length() == 0) {
+            return;
+        }
+        if (entry.getContent() != null) {
+            response.getOutputStream().write(entry.getContent(), (int) range.start, (int) range.length());
+            return;
+        }
+
+        Path file = mediaStore.localPath(key);
+        if (file == null) {
+            try (InputStream in = mediaStore.get(key, range.start, range.end)) {
+                copy(in, range, response.getOutputStream());
+            }
+            return;
+        }
+        if (range.length() >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat streams it once this method returns; end is exclusive
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, range.start);
+            request.setAttribute(SENDFILE_END, range.end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            transfer(channel, range, out);
+        }
+    }
+
+    private void sendMultipart(String key, MediaFileCache.Entry entry, List<Range> ranges, String contentType,
+            HttpServletResponse response, boolean withBody) throws IOException {
+        long length = entry.getSize();
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> headers = new ArrayList<>();
+        long contentLength = 0;
+        for (Range range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: bytes "
+                    + range.start + "-" + range.end + "/" + length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            headers.add(header);
+            contentLength += header.length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (!withBody) {
+            return;
+        }
+
+        OutputStream stream = response.getOutputStream();
+        byte[] content = entry.getContent();
+        if (content != null) {
+            for (int i = 0; i < ranges.size(); i++) {
+                stream.write(headers.get(i));
+                stream.write(content, (int) ranges.get(i).start, (int) ranges.get(i).length());
+            }
+        } else if (mediaStore.localPath(key) == null) {
+            for (int i = 0; i < ranges.size(); i++) {
+                stream.write(headers.get(i));
+                try (InputStream in = mediaStore.get(key, ranges.get(i).start, ranges.get(i).end)) {
+                    copy(in, ranges.get(i), stream);
+                }
+            }
+        } else {
+            Path file = mediaStore.localPath(key);
+            WritableByteChannel out = Channels.newChannel(stream);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < ranges.size(); i++) {
+                    stream.write(headers.get(i));
+                    transfer(channel, ranges.get(i), out);
+                }
+            }
+        }
+        stream.write(closing);
+    }
+
+    private static void transfer(FileChannel channel, Range range, WritableByteChannel out) throws IOException {
+        long position = range.start;
+        long remaining = range.length();
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, out);
+            if (sent <= 0) {
+                throw new IOException("File ended before the requested range");
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    // The store answers with exactly the range; anything else would corrupt the response
+    private static void copy(InputStream in, Range range, OutputStream out) throws IOException {
+        if (in.transferTo(out) != range.length()) {
+            throw new IOException("Stored object does not match the requested range");
+        }
+    }
+
+    // If-None-Match wins over If-Modified-Since when both are sent (RFC 9110 13.2.2)
+    private static boolean notModified(HttpServletRequest request, MediaFileCache.Entry entry) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(entry.getEtag()) || tag.equals("W/" + entry.getEtag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, "If-Modified-Since");
+        return ifModifiedSince != -1 && entry.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    // Empty list for the whole file, null when no range can be satisfied. Overlapping and adjacent ranges are
+    // coalesced (RFC 9110 14.2), in ascending order, so "bytes=0-,0-,..." cannot make the response larger than
+    // the file; ranges asking for more bytes than the file has are answered with the whole file.
+    private static List<Range> rangesToServe(HttpServletRequest request, MediaFileCache.Entry entry) {
+        String header = request.getHeader("Range");
+        if (header == null || !header.startsWith("bytes=")) {
+            return List.of();
+        }
+        // The client's copy is outdated: it gets the whole new file instead of a piece of it
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.equals(entry.getEtag())) {
+            long date = dateHeader(request, "If-Range");
+            if (date == -1 || entry.getLastModified() / 1000 > date / 1000) {
+                return List.of();
+            }
+        }
+        long length = entry.getSize();
+
+        List<Range> ranges = new ArrayList<>();
+        long requested = 0;
+        try {
+            for (String spec : header.substring("bytes=".length()).split(",")) {
+                Range range = parseRange(spec.trim(), length);
+                if (range != null) {
+                    ranges.add(range);
+                    requested += range.length();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // A malformed header is ignored
+            return List.of();
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        if (requested > length) {
+            return List.of();
+        }
+        ranges = coalesce(ranges);
+        return ranges.size() > MAX_RANGES ? List.of() : ranges;
+    }
+
+    private static List<Range> coalesce(List<Range> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range.start));
+        List<Range> coalesced = new ArrayList<>();
+        Range current = ranges.get(0);
+        for (Range range : ranges.subList(1, ranges.size())) {
+            if (range.start <= current.end + 1) {
+                current = new Range(current.start, Math.max(current.end, range.end));
+            } else {
+                coalesced.add(current);
+                current = range;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    // "first-last", "first-" or "-suffixLength"; null when outside the file, throws when malformed
+    private static Range parseRange(String spec, long length) {
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Invalid range " + spec);
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        if (first.isEmpty()) {
+            long suffix = Long.parseLong(last);
+            if (suffix <= 0 || length == 0) {
+                return null;
+            }
+            return new Range(Math.max(0, length - suffix), length - 1);
+        }
+        long start = Long.parseLong(first);
+        long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range " + spec);
+        }
+        return start < length ? new Range(start, Math.min(end, length - 1)) : null;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // Only plain keys are accepted: no empty, "." or ".." segment can lead outside the uploads
+    private static String keyOf(String pathInfo) {
+        if (pathInfo == null || pathInfo.length() < 2) {
+            return null;
+        }
+        String key = pathInfo.substring(1);
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..") || segment.contains("\\")) {
+                return null;
+            }
+        }
+        return key;
+    }
+
+    // While UploadLayoutMigration runs, a URL may name the flat path of a file already moved to its shard, or
+    // the sharded path of a file not moved yet: the file is looked for in the other place
+    private static String otherLayout(String key) {
+        int slash = key.lastIndexOf('/');
+        String name = key.substring(slash + 1);
+        String dir = slash < 0 ? "" : key.substring(0, slash);
+        String sharded = FileStorageUtils.shardedPath(name);
+        if (sharded.equals(name)) {
+            return key;
+        }
+        String shard = sharded.substring(0, sharded.lastIndexOf('/'));
+        if (dir.equals(shard)) {
+            return name;
+        }
+        if (dir.endsWith("/" + shard)) {
+            return dir.substring(0, dir.length() - shard.length()) + name;
+        }
+        return FileStorageUtils.storageKey(dir, sharded);
+    }
+
+    private String contentTypeOf(String key) {
+        String contentType = getServletContext().getMimeType(key.substring(key.lastIndexOf('/') + 1));
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+}
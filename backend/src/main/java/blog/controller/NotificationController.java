@@ -1,7 +1,6 @@
 package blog.controller;
 
-import java.util.List;
-
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,9 +9,11 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import blog.dto.response.NotificationResponseDto;
-import blog.entity.User;
+import blog.dto.response.PageResponse;
+import blog.security.AuthenticatedUser;
 import blog.services.NotificationService;
 
 @RestController
@@ -26,21 +27,32 @@ public class NotificationController {
     }
 
     @GetMapping
-    public ResponseEntity<List<NotificationResponseDto>> getNotifications(
+    public ResponseEntity<PageResponse<NotificationResponseDto>> getNotifications(
             @RequestParam(defaultValue = "false") boolean unreadOnly,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
-        List<NotificationResponseDto> notifications = notificationService.getNotifications(
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        PageResponse<NotificationResponseDto> notifications = notificationService.getNotifications(
                 currentUser.getId(),
-                unreadOnly);
+                unreadOnly,
+                cursor,
+                Math.min(Math.max(size, 1), 100));
 
         return ResponseEntity.ok(notifications);
     }
 
+    // Server-sent events: "notification" for each new notification and "unread-count" on every change
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication authentication) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        return notificationService.openStream(currentUser.getId());
+    }
+
     @GetMapping("/unread-count")
     public ResponseEntity<Long> getUnreadCount(Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         Long count = notificationService.getUnreadCount(currentUser.getId());
 
         return ResponseEntity.ok(count);
@@ -51,7 +63,7 @@ public class NotificationController {
             @PathVariable Long notificationId,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         NotificationResponseDto response = notificationService.markAsRead(notificationId, currentUser.getId());
 
         return ResponseEntity.ok(response);
@@ -59,7 +71,7 @@ public class NotificationController {
 
     @PutMapping("/mark-all-read")
     public ResponseEntity<Void> markAllAsRead(Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         notificationService.markAllAsRead(currentUser.getId());
 
         return ResponseEntity.noContent().build();
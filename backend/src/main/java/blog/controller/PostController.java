@@ -1,11 +1,14 @@
 package blog.controller;
 
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -16,28 +19,37 @@ import org.springframework.web.bind.annotation.RestController;
 import blog.dto.request.CreatePostRequestDto;
 import blog.dto.response.PageResponse;
 import blog.dto.response.PostResponseDto;
-import blog.entity.User;
+import blog.exceptions.ValidationException;
+import blog.security.AuthenticatedUser;
 import blog.services.PostService;
-import jakarta.validation.Valid;
+import blog.services.UploadService;
+import blog.services.UploadService.UploadedForm;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 @RestController
 @RequestMapping("/api/post")
 public class PostController {
 
     private final PostService postService;
+    private final UploadService uploadService;
+    private final Validator validator;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, UploadService uploadService, Validator validator) {
         this.postService = postService;
+        this.uploadService = uploadService;
+        this.validator = validator;
     }
 
+    // Multipart bodies are read by UploadService: the media are staged before the post is saved
     @PostMapping
-    public ResponseEntity<PostResponseDto> createPost(
-            @Valid @RequestParam String title,
-            @Valid @ModelAttribute CreatePostRequestDto createDto,
-            Authentication authentication) {
+    public ResponseEntity<PostResponseDto> createPost(HttpServletRequest request,
+            Authentication authentication) throws IOException {
 
-        User creator = (User) authentication.getPrincipal();
-        PostResponseDto response = postService.createPost(createDto, creator);
+        AuthenticatedUser creator = (AuthenticatedUser) authentication.getPrincipal();
+        PostResponseDto response = uploadService.receive(request, "posts", "", null,
+                form -> postService.createPost(toPostRequest(form), creator.getId()));
 
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -46,10 +58,14 @@ public class PostController {
     public ResponseEntity<PageResponse<PostResponseDto>> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
-        PageResponse<PostResponseDto> posts = postService.getAllPosts(currentUser.getId(), page, size);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        // Any cursor parameter (even empty, for the first page) switches to keyset pagination
+        PageResponse<PostResponseDto> posts = cursor != null
+                ? postService.getAllPostsByCursor(currentUser.getId(), cursor, size)
+                : postService.getAllPosts(currentUser.getId(), page, size);
 
         return ResponseEntity.ok(posts);
     }
@@ -58,10 +74,13 @@ public class PostController {
     public ResponseEntity<PageResponse<PostResponseDto>> getPostsByUser(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size, Authentication authentication) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor, Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
-        PageResponse<PostResponseDto> posts = postService.getPostsByUser(userId, currentUser.getId(), page, size);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        PageResponse<PostResponseDto> posts = cursor != null
+                ? postService.getPostsByUserByCursor(userId, currentUser.getId(), cursor, size)
+                : postService.getPostsByUser(userId, currentUser.getId(), page, size);
 
         return ResponseEntity.ok(posts);
     }
@@ -71,7 +90,7 @@ public class PostController {
             @PathVariable Long postId,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         PostResponseDto post = postService.getSinglePost(postId, currentUser.getId());
 
         return ResponseEntity.ok(post);
@@ -79,11 +98,12 @@ public class PostController {
 
     @PutMapping("/{postId}")
     public ResponseEntity<PostResponseDto> updatePost(@PathVariable Long postId,
-            @Valid @ModelAttribute CreatePostRequestDto updateDto,
-            Authentication authentication) {
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
 
-        User currentUser = (User) authentication.getPrincipal();
-        PostResponseDto updatedPost = postService.updatePost(postId, updateDto, currentUser.getId());
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        PostResponseDto updatedPost = uploadService.receive(request, "posts", "", null,
+                form -> postService.updatePost(postId, toPostRequest(form), currentUser.getId()));
 
         return ResponseEntity.ok(updatedPost);
     }
@@ -93,10 +113,27 @@ public class PostController {
             @PathVariable Long postId,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         postService.deletePost(postId, currentUser.getId());
 
         return ResponseEntity.noContent().build();
     }
 
+    // Bind and validate the received form like @Valid @ModelAttribute did
+    private CreatePostRequestDto toPostRequest(UploadedForm form) {
+        CreatePostRequestDto requestDto = new CreatePostRequestDto();
+        requestDto.setTitle(form.getField("title"));
+        requestDto.setContent(form.getField("content"));
+        requestDto.setDeletedMediaIds(form.getField("deletedMediaIds"));
+        requestDto.setFiles(form.getFiles());
+
+        Set<ConstraintViolation<CreatePostRequestDto>> violations = validator.validate(requestDto);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining("; ")));
+        }
+        return requestDto;
+    }
+
 }
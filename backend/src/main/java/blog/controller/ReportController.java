@@ -10,7 +10,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import blog.dto.request.CreateReportRequestDto;
 import blog.dto.response.ReportResponseDto;
-import blog.entity.User;
+import blog.security.AuthenticatedUser;
 import blog.services.ReportService;
 import jakarta.validation.Valid;
 
@@ -30,8 +30,8 @@ public class ReportController {
             @Valid @RequestBody CreateReportRequestDto requestDto,
             Authentication authentication) {
 
-        User currentUser = (User) authentication.getPrincipal();
-        ReportResponseDto response = reportService.createReport(requestDto, currentUser);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        ReportResponseDto response = reportService.createReport(requestDto, currentUser.getId());
 
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
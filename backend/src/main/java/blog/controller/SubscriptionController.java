@@ -11,7 +11,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import blog.dto.response.UserResponseDto;
-import blog.entity.User;
+import blog.security.AuthenticatedUser;
 import blog.services.SubscriptionService;
 
 @RestController
@@ -27,7 +27,7 @@ public class SubscriptionController {
     @PostMapping("/{userId}/follow")
     public ResponseEntity<?> followUser(
             @PathVariable Long userId,
-            @AuthenticationPrincipal User currentUser) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             UserResponseDto response = subscriptionService.followUser(currentUser.getId(), userId);
             return ResponseEntity.ok(response);
@@ -41,7 +41,7 @@ public class SubscriptionController {
     @DeleteMapping("/{userId}/unfollow")
     public ResponseEntity<?> unfollowUser(
             @PathVariable Long userId,
-            @AuthenticationPrincipal User currentUser) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             UserResponseDto response = subscriptionService.unfollowUser(currentUser.getId(), userId);
             return ResponseEntity.ok(response);
@@ -55,7 +55,7 @@ public class SubscriptionController {
     @GetMapping("/{userId}/isfollowing")
     public ResponseEntity<?> isFollowing(
             @PathVariable Long userId,
-            @AuthenticationPrincipal User currentUser) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             boolean isFollowing = subscriptionService.isFollowing(currentUser.getId(), userId);
             return ResponseEntity.ok(isFollowing);
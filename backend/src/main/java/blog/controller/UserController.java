@@ -14,12 +14,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.multipart.MultipartFile;
 
 import blog.dto.request.UpdateProfileRequestDto;
 import blog.dto.response.UserResponseDto;
-import blog.entity.User;
+import blog.security.AuthenticatedUser;
+import blog.services.UploadService;
 import blog.services.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @RestController
@@ -27,35 +28,38 @@ import jakarta.validation.Valid;
 public class UserController {
 
     private final UserService userService;
+    private final UploadService uploadService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UploadService uploadService) {
         this.userService = userService;
+        this.uploadService = uploadService;
     }
 
     @PutMapping
     public UserResponseDto updateProfile(@Valid @RequestBody UpdateProfileRequestDto updateDto,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
         return userService.updateProfile(user.getId(), updateDto);
     }
 
     @GetMapping("/{username}")
     public UserResponseDto getUserProfile(@PathVariable String username, Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
         return userService.getUserProfile(username, currentUser.getId());
     }
 
     @PostMapping("/picture")
-    public UserResponseDto updateProfileImg(@Valid @RequestParam("file") MultipartFile file,
+    public UserResponseDto updateProfileImg(HttpServletRequest request,
             Authentication authentication) throws IOException {
 
-        User user = (User) authentication.getPrincipal();
-        return userService.updateProfileImg(user.getId(), file);
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return uploadService.receive(request, "", ".jpg", UserService::checkProfileImgType,
+                form -> userService.updateProfileImg(user.getId(), form.getFile("file")));
     }
 
     @DeleteMapping("/picture")
     public UserResponseDto deleteProfileImg(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
 
         return userService.deleteProfileImg(user.getId());
     }
@@ -2,7 +2,7 @@ package blog.dto.request;
 
 import java.util.List;
 
-import org.springframework.web.multipart.MultipartFile;
+import blog.util.FileStorageUtils.StoredFile;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -17,7 +17,8 @@ public class CreatePostRequestDto {
     @Size(min = 10, max = 5000, message = "Content must be between 10 and 5000 characters")
     private String content;
 
-    private List<MultipartFile> files;
+    // Already stored by UploadService while the request was read
+    private List<StoredFile> files;
 
     private String deletedMediaIds;
 
@@ -37,11 +38,11 @@ public class CreatePostRequestDto {
         this.content = content;
     }
 
-    public List<MultipartFile> getFiles() {
+    public List<StoredFile> getFiles() {
         return files;
     }
 
-    public void setFiles(List<MultipartFile> files) {
+    public void setFiles(List<StoredFile> files) {
         this.files = files;
     }
 
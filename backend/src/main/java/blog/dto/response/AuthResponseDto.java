@@ -2,10 +2,12 @@ package blog.dto.response;
 
 public class AuthResponseDto {
     private String token;
+    private String refreshToken;
     private UserResponseDto user;
 
-    public AuthResponseDto(String token, UserResponseDto user) {
+    public AuthResponseDto(String token, String refreshToken, UserResponseDto user) {
         this.token = token;
+        this.refreshToken = refreshToken;
         this.user = user;
     }
 
@@ -17,6 +19,14 @@ public class AuthResponseDto {
         this.token = token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public UserResponseDto getUser() {
         return user;
     }
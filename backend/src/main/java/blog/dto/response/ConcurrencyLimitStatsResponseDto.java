@@ -0,0 +1,74 @@
+package blog.dto.response;
+
+import java.util.Map;
+
+public class ConcurrencyLimitStatsResponseDto {
+
+    private int limit;
+    private int inFlight;
+    private long admitted;
+    private Map<String, Long> dropped;
+    private double shortRttMillis;
+    private double longRttMillis;
+
+    public ConcurrencyLimitStatsResponseDto() {
+    }
+
+    public ConcurrencyLimitStatsResponseDto(int limit, int inFlight, long admitted, Map<String, Long> dropped,
+                                            double shortRttMillis, double longRttMillis) {
+        this.limit = limit;
+        this.inFlight = inFlight;
+        this.admitted = admitted;
+        this.dropped = dropped;
+        this.shortRttMillis = shortRttMillis;
+        this.longRttMillis = longRttMillis;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public void setAdmitted(long admitted) {
+        this.admitted = admitted;
+    }
+
+    public Map<String, Long> getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(Map<String, Long> dropped) {
+        this.dropped = dropped;
+    }
+
+    public double getShortRttMillis() {
+        return shortRttMillis;
+    }
+
+    public void setShortRttMillis(double shortRttMillis) {
+        this.shortRttMillis = shortRttMillis;
+    }
+
+    public double getLongRttMillis() {
+        return longRttMillis;
+    }
+
+    public void setLongRttMillis(double longRttMillis) {
+        this.longRttMillis = longRttMillis;
+    }
+}
@@ -1,18 +1,24 @@
 package blog.dto.response;
 
+import java.util.Map;
+
 import blog.entity.Media;
 import blog.entity.MediaType;
+import blog.util.ImageVariantUtils;
 
 public class MediaResponseDto {
     private Long id;
     private String url;
     private MediaType type;
+    // thumb, feed and full JPEG copies of an image, empty until generated
+    private Map<String, String> variants;
 
     public static MediaResponseDto fromEntity(Media media) {
         MediaResponseDto dto = new MediaResponseDto();
         dto.id = media.getId();
         dto.url = media.getUrl();
         dto.type = media.getType();
+        dto.variants = ImageVariantUtils.toUrls(media.getUrl(), media.getVariants(), ImageVariantUtils.POST_DIR);
         return dto;
     }
 
@@ -39,4 +45,12 @@ public class MediaResponseDto {
     public void setType(MediaType type) {
         this.type = type;
     }
+
+    public Map<String, String> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(Map<String, String> variants) {
+        this.variants = variants;
+    }
 }
\ No newline at end of file
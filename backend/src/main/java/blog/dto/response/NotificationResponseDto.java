@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import blog.entity.Notification;
 import blog.entity.NotificationType;
+import blog.util.NotificationMessageFormatter;
 
 public class NotificationResponseDto {
 
@@ -12,6 +13,7 @@ public class NotificationResponseDto {
     private String message;
     private Long relatedPostId;
     private Boolean isRead;
+    private Integer eventCount;
     private LocalDateTime createdAt;
     private CreatorDto creator;
 
@@ -47,14 +49,29 @@ public class NotificationResponseDto {
     public NotificationResponseDto() {
     }
 
+    // Projection constructor used by the paged JPQL query (creator columns come from the same join)
+    public NotificationResponseDto(Long id, NotificationType type, String message, Long relatedPostId,
+            Boolean isRead, Integer eventCount, LocalDateTime createdAt, Long creatorId, String creatorUsername) {
+        this.id = id;
+        this.type = type;
+        this.message = groupedMessage(type, message, eventCount, creatorUsername);
+        this.relatedPostId = relatedPostId;
+        this.isRead = isRead;
+        this.eventCount = eventCount;
+        this.createdAt = createdAt;
+        this.creator = new CreatorDto(creatorId, creatorUsername);
+    }
+
     // Factory method
     public static NotificationResponseDto fromEntity(Notification notification) {
         NotificationResponseDto dto = new NotificationResponseDto();
         dto.setId(notification.getId());
         dto.setType(notification.getType());
-        dto.setMessage(notification.getMessage());
+        dto.setMessage(groupedMessage(notification.getType(), notification.getMessage(),
+                notification.getEventCount(), notification.getCreator().getUsername()));
         dto.setRelatedPostId(notification.getRelatedPostId());
         dto.setIsRead(notification.getIsRead());
+        dto.setEventCount(notification.getEventCount());
         dto.setCreatedAt(notification.getCreatedAt());
 
         CreatorDto creatorDto = new CreatorDto(
@@ -66,6 +83,15 @@ public class NotificationResponseDto {
         return dto;
     }
 
+    // The stored message is the one of the first event, grouped rows are rendered from their count
+    private static String groupedMessage(NotificationType type, String message, Integer eventCount,
+            String creatorUsername) {
+        if (eventCount == null || eventCount <= 1) {
+            return message;
+        }
+        return NotificationMessageFormatter.formatMessage(type, creatorUsername, eventCount);
+    }
+
     public Long getId() {
         return id;
     }
@@ -106,6 +132,14 @@ public class NotificationResponseDto {
         this.isRead = isRead;
     }
 
+    public Integer getEventCount() {
+        return eventCount;
+    }
+
+    public void setEventCount(Integer eventCount) {
+        this.eventCount = eventCount;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -8,6 +8,7 @@ public class PageResponse<T> {
     private int totalPages;
     private long totalElements;
     private boolean hasMore;
+    private String nextCursor;
 
     public PageResponse() {
     }
@@ -20,6 +21,13 @@ public class PageResponse<T> {
         this.hasMore = currentPage < totalPages - 1;
     }
 
+    // Cursor page: no totals are computed, hasMore follows from the presence of a next cursor
+    public PageResponse(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
     public List<T> getContent() {
         return content;
     }
@@ -59,4 +67,12 @@ public class PageResponse<T> {
     public void setHasMore(boolean hasMore) {
         this.hasMore = hasMore;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
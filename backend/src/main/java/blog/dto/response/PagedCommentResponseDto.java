@@ -19,6 +19,8 @@ public class PagedCommentResponseDto {
 
     private boolean hasMore;
 
+    private String nextCursor;
+
     public static PagedCommentResponseDto fromPage(Page<Comment> commentPage) {
         PagedCommentResponseDto dto = new PagedCommentResponseDto();
         dto.comments = commentPage.getContent().stream()
@@ -31,6 +33,17 @@ public class PagedCommentResponseDto {
         return dto;
     }
 
+    // Cursor page: totals are not computed
+    public static PagedCommentResponseDto fromSlice(List<Comment> comments, String nextCursor) {
+        PagedCommentResponseDto dto = new PagedCommentResponseDto();
+        dto.comments = comments.stream()
+                .map(CommentResponseDto::fromEntity)
+                .toList();
+        dto.nextCursor = nextCursor;
+        dto.hasMore = nextCursor != null;
+        return dto;
+    }
+
     public List<CommentResponseDto> getComments() {
         return comments;
     }
@@ -71,4 +84,12 @@ public class PagedCommentResponseDto {
         this.hasMore = hasMore;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
 }
@@ -2,7 +2,6 @@ package blog.dto.response;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -15,7 +14,6 @@ public class PostResponseDto {
     private String content;
     private UserResponseDto creator;
     private List<MediaResponseDto> media;
-    private List<CommentResponseDto> comments;
     private int commentsCount;
     private int likesCount;
     private long reportCount;
@@ -26,42 +24,24 @@ public class PostResponseDto {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
-    public static PostResponseDto fromEntity(Post post) {
+    // Media, counts and the liked flag are loaded per page by PostResponseAssembler, never from the post's collections
+    public static PostResponseDto fromEntity(Post post, List<MediaResponseDto> media, long likesCount,
+            long commentsCount, boolean isLikedByCurrentUser) {
         PostResponseDto dto = new PostResponseDto();
         dto.id = post.getId();
         dto.title = post.getTitle();
         dto.content = post.getContent();
         dto.creator = UserResponseDto.fromEntity(post.getCreator());
-        dto.media = post.getMediaList().stream()
-                .map(MediaResponseDto::fromEntity)
-                .collect(Collectors.toList());
-        dto.comments = post.getComments() != null
-                ? post.getComments().stream()
-                        .map(CommentResponseDto::fromEntity)
-                        .collect(Collectors.toList())
-                : List.of();
-        dto.commentsCount = post.getComments() != null ? post.getComments().size() : 0;
-        dto.likesCount = post.getLikes() != null ? post.getLikes().size() : 0;
+        dto.media = media;
+        dto.commentsCount = (int) commentsCount;
+        dto.likesCount = (int) likesCount;
+        dto.isLikedByCurrentUser = isLikedByCurrentUser;
         dto.isHidden = post.isHidden();
         dto.createdAt = post.getCreatedAt();
         dto.updatedAt = post.getUpdatedAt();
         return dto;
     }
 
-    public static PostResponseDto fromEntity(Post post, Long currentUserId) {
-        PostResponseDto dto = fromEntity(post);
-        dto.isLikedByCurrentUser = post.getLikes() != null
-                && post.getLikes().stream().anyMatch(like -> like.getUser().getId() == (currentUserId));
-        return dto;
-    }
-
-    // For admin dashboard with report count
-    public static PostResponseDto forAdminDash(Post post, long reportCount) {
-        PostResponseDto dto = fromEntity(post);
-        dto.reportCount = reportCount;
-        return dto;
-    }
-
     public Long getId() {
         return id;
     }
@@ -126,14 +106,6 @@ public class PostResponseDto {
         this.media = media;
     }
 
-    public List<CommentResponseDto> getComments() {
-        return comments;
-    }
-
-    public void setComments(List<CommentResponseDto> comments) {
-        this.comments = comments;
-    }
-
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
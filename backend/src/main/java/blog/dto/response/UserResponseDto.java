@@ -1,9 +1,11 @@
 package blog.dto.response;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 import blog.entity.Role;
 import blog.entity.User;
+import blog.util.ImageVariantUtils;
 
 public class UserResponseDto {
 
@@ -14,6 +16,8 @@ public class UserResponseDto {
     private String lastName;
     private String bio;
     private String profileImgUrl;
+    // small, medium and large square avatars, empty until generated
+    private Map<String, String> avatarVariants;
     private Role role;
     private Long followersCount;
     private Long followingCount;
@@ -34,6 +38,7 @@ public class UserResponseDto {
         userResp.lastName = user.getLastName();
         userResp.bio = user.getBio();
         userResp.profileImgUrl = user.getProfileImgUrl();
+        userResp.avatarVariants = avatarVariantsOf(user);
         userResp.role = user.getRole();
         userResp.joinedDate = user.getJoinedDate();
         return userResp;
@@ -49,6 +54,7 @@ public class UserResponseDto {
         dto.role = user.getRole();
         dto.isBanned = user.getIsBanned();
         dto.profileImgUrl = user.getProfileImgUrl();
+        dto.avatarVariants = avatarVariantsOf(user);
         dto.reportCount = reportCount;
         dto.joinedDate = user.getJoinedDate();
         return dto;
@@ -110,6 +116,19 @@ public class UserResponseDto {
         this.profileImgUrl = profileImgUrl;
     }
 
+    public Map<String, String> getAvatarVariants() {
+        return avatarVariants;
+    }
+
+    public void setAvatarVariants(Map<String, String> avatarVariants) {
+        this.avatarVariants = avatarVariants;
+    }
+
+    private static Map<String, String> avatarVariantsOf(User user) {
+        return ImageVariantUtils.toUrls(user.getProfileImgUrl(), user.getAvatarVariants(),
+                ImageVariantUtils.AVATAR_DIR);
+    }
+
     public Role getRole() {
         return role;
     }
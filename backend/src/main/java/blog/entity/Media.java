@@ -7,6 +7,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -15,7 +16,9 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "post_media")
+@Table(name = "post_media", indexes = {
+    @Index(name = "idx_post_media_url", columnList = "media_url")
+})
 public class Media {
 
     @Id
@@ -32,6 +35,14 @@ public class Media {
     @Column(name = "media_type", nullable = false, length = 20)
     private MediaType type;
 
+    // SHA-256 of the shared file in media_blobs, null for media stored before content addressing
+    @Column(name = "content_sha256", length = 64)
+    private String contentHash;
+
+    // Resized copies available for an image (see ImageVariantUtils), null until they are generated
+    @Column(name = "variants", length = 100)
+    private String variants;
+
     @ManyToOne
     @JoinColumn(name = "post_id", nullable = false)
     private Post post;
@@ -61,6 +72,22 @@ public class Media {
         this.type = type;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getVariants() {
+        return variants;
+    }
+
+    public void setVariants(String variants) {
+        this.variants = variants;
+    }
+
     public Post getPost() {
         return post;
     }
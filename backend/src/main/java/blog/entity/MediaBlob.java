@@ -0,0 +1,63 @@
+package blog.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// One stored file per distinct content, shared by every Media row with the same SHA-256.
+// ref_count counts the Media rows using the file and the uploads of it in progress, and is only changed by
+// MediaBlobRepository; the file is deleted with the row when it reaches 0.
+@Entity
+@Table(name = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    // Name of the file under uploads/posts
+    @Column(name = "file_name", nullable = false, length = 100)
+    private String fileName;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -11,13 +11,17 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    @Index(name = "idx_notifications_recipient_created", columnList = "recipient_id, created_at DESC, id DESC"),
+    @Index(name = "idx_notifications_created", columnList = "created_at")
+})
 public class Notification {
 
     @Id
@@ -45,6 +49,10 @@ public class Notification {
     @Column(name = "is_read", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
     private Boolean isRead = false;
 
+    // Number of same-type events merged into this row; creator and relatedPostId are those of the latest
+    @Column(name = "event_count", nullable = false, columnDefinition = "integer default 1")
+    private Integer eventCount = 1;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -90,6 +98,14 @@ public class Notification {
         this.isRead = isRead;
     }
 
+    public Integer getEventCount() {
+        return eventCount;
+    }
+
+    public void setEventCount(Integer eventCount) {
+        this.eventCount = eventCount;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
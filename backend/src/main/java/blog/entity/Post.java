@@ -13,6 +13,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -21,7 +22,10 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    @Index(name = "idx_posts_created", columnList = "created_at DESC, id DESC"),
+    @Index(name = "idx_posts_user_created", columnList = "user_id, created_at DESC, id DESC")
+})
 public class Post {
 
     @Id
@@ -53,6 +57,24 @@ public class Post {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Denormalized counters, only changed by atomic UPDATEs in PostRepository (never written through the entity)
+    @Column(name = "likes_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long likesCount;
+
+    @Column(name = "comments_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long commentsCount;
+
+    // Fan-out still to be done after commit, cleared by TimelineService and NotificationFanOutService; only set
+    // on insert here, later changes are UPDATEs in PostRepository
+    @Column(name = "timeline_pending", nullable = false, updatable = false, columnDefinition = "boolean default false")
+    private boolean timelinePending;
+
+    @Column(name = "notifications_pending", nullable = false, updatable = false,
+            columnDefinition = "boolean default false")
+    private boolean notificationsPending;
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Media> mediaList = new ArrayList<>();
 
@@ -86,6 +108,14 @@ public class Post {
         this.isHidden = isHidden;
     }
 
+    public void setTimelinePending(boolean timelinePending) {
+        this.timelinePending = timelinePending;
+    }
+
+    public void setNotificationsPending(boolean notificationsPending) {
+        this.notificationsPending = notificationsPending;
+    }
+
     public String getContent() {
         return content;
     }
@@ -122,6 +152,14 @@ public class Post {
         return likes;
     }
 
+    public long getLikesCount() {
+        return likesCount;
+    }
+
+    public long getCommentsCount() {
+        return commentsCount;
+    }
+
     public void setLikes(List<Like> likes) {
         this.likes = likes;
     }
@@ -10,6 +10,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -18,7 +19,8 @@ import jakarta.persistence.UniqueConstraint;
 @Entity
 @Table(
         name = "subscriptions",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"follower_id", "following_id"})
+        uniqueConstraints = @UniqueConstraint(columnNames = {"follower_id", "following_id"}),
+        indexes = @Index(name = "idx_subscriptions_following", columnList = "following_id, follower_id")
 )
 public class Subscription {
 
@@ -0,0 +1,80 @@
+package blog.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// One row per (follower, post): the materialized home feed of a user
+@Entity
+@Table(name = "timeline_entries",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id", "post_id"}),
+        indexes = {
+            @Index(name = "idx_timeline_owner_created", columnList = "owner_id, post_created_at DESC, post_id DESC"),
+            @Index(name = "idx_timeline_post", columnList = "post_id"),
+            @Index(name = "idx_timeline_owner_author", columnList = "owner_id, author_id")
+        })
+public class TimelineEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    @Column(name = "post_created_at", nullable = false)
+    private LocalDateTime postCreatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public LocalDateTime getPostCreatedAt() {
+        return postCreatedAt;
+    }
+
+    public void setPostCreatedAt(LocalDateTime postCreatedAt) {
+        this.postCreatedAt = postCreatedAt;
+    }
+}
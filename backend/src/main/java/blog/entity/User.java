@@ -10,6 +10,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import blog.util.IdentifierUtils;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -38,6 +39,10 @@ public class User implements UserDetails {
     @Column(name = "username", unique = true, nullable = false, length = 15)
     private String username;
 
+    // Lookup key for case-insensitive logins and profile URLs, kept in sync by setUsername
+    @Column(name = "username_lower", length = 15)
+    private String usernameLower;
+
     @NotBlank(message = "First name is required")
     @Size(min = 3, max = 30, message = "First name must be between 3 and 30 characters")
     @Column(name = "first_name", nullable = false, length = 30)
@@ -55,6 +60,10 @@ public class User implements UserDetails {
     @Column(name = "email", unique = true, nullable = false, length = 100)
     private String email;
 
+    // Kept in sync by setEmail
+    @Column(name = "email_lower", length = 100)
+    private String emailLower;
+
     @NotBlank(message = "password is required")
     @Column(name = "password", nullable = false, length = 100)
     private String password;
@@ -71,6 +80,10 @@ public class User implements UserDetails {
     @Column(name = "profile_img_url", length = 520)
     private String profileImgUrl;
 
+    // Avatar sizes generated from the profile image (see ImageVariantUtils), null until they are generated
+    @Column(name = "avatar_variants", length = 100)
+    private String avatarVariants;
+
     @Column(name = "is_banned", nullable = false)
     private Boolean isBanned = false;
 
@@ -100,6 +113,16 @@ public class User implements UserDetails {
     @Column(name = "joined_date", nullable = false, updatable = false)
     private LocalDateTime joinedDate;
 
+    // Denormalized unread notification counter, only changed by atomic UPDATEs in UserRepository
+    @Column(name = "unread_notifications_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long unreadNotificationsCount;
+
+    // Version carried by the JWTs of this user, only changed by UserRepository.incrementTokenVersion
+    @Column(name = "token_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long tokenVersion;
+
     public long getId() {
         return id;
     }
@@ -115,6 +138,7 @@ public class User implements UserDetails {
 
     public void setUsername(String username) {
         this.username = username;
+        this.usernameLower = IdentifierUtils.normalize(username);
     }
 
     public String getFirstName() {
@@ -139,6 +163,7 @@ public class User implements UserDetails {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailLower = IdentifierUtils.normalize(email);
     }
 
     @Override
@@ -174,6 +199,14 @@ public class User implements UserDetails {
         this.profileImgUrl = profileImgUrl;
     }
 
+    public String getAvatarVariants() {
+        return avatarVariants;
+    }
+
+    public void setAvatarVariants(String avatarVariants) {
+        this.avatarVariants = avatarVariants;
+    }
+
     public List<Subscription> getFollowers() {
         return followers;
     }
@@ -253,6 +286,14 @@ public class User implements UserDetails {
         return joinedDate;
     }
 
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public long getUnreadNotificationsCount() {
+        return unreadNotificationsCount;
+    }
+
     public void setJoinedDate(LocalDateTime joinedDate) {
         this.joinedDate = joinedDate;
     }
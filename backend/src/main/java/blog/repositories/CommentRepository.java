@@ -1,5 +1,8 @@
 package blog.repositories;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -13,6 +16,12 @@ import blog.entity.Comment;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     // find comments with pagination
-    @Query("SELECT c FROM Comment c WHERE c.post.id = :postId ORDER BY c.createdAt DESC")
+    @Query("SELECT c FROM Comment c WHERE c.post.id = :postId ORDER BY c.createdAt DESC, c.id DESC")
     Page<Comment> findByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    // keyset variant: seek past the (createdAt, id) cursor, no count query
+    @Query("SELECT c FROM Comment c WHERE c.post.id = :postId AND (c.createdAt, c.id) < (:createdAt, :id) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findByPostIdAfter(@Param("postId") Long postId, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
 }
\ No newline at end of file
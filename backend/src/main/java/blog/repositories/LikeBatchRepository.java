@@ -0,0 +1,81 @@
+package blog.repositories;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Multi-row like writes used by the like buffer flush. Each statement returns the post id of every row it
+// really changed, so counters are only moved by what was applied.
+@Repository
+public class LikeBatchRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LikeBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // pairs are (userId, postId); rows whose user or post no longer exists are skipped
+    public List<Long> insertLikes(List<long[]> pairs) {
+        return runInChunks(pairs, values -> """
+                INSERT INTO likes (user_id, post_id, created_at)
+                SELECT v.user_id, v.post_id, now() FROM (VALUES %s) AS v(user_id, post_id)
+                JOIN posts p ON p.id = v.post_id
+                JOIN users u ON u.id = v.user_id
+                ON CONFLICT (user_id, post_id) DO NOTHING
+                RETURNING post_id
+                """.formatted(values));
+    }
+
+    public List<Long> deleteLikes(List<long[]> pairs) {
+        return runInChunks(pairs, values -> """
+                DELETE FROM likes l USING (VALUES %s) AS v(user_id, post_id)
+                WHERE l.user_id = v.user_id AND l.post_id = v.post_id
+                RETURNING l.post_id
+                """.formatted(values));
+    }
+
+    // deltas are postId -> change of likes_count
+    public void addToLikesCounts(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // Lock counter rows in id order so concurrent flushes cannot deadlock
+        List<long[]> rows = new ArrayList<>();
+        deltas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> rows.add(new long[] { entry.getKey(), entry.getValue() }));
+
+        runInChunks(rows, values -> """
+                UPDATE posts p SET likes_count = p.likes_count + v.delta FROM (VALUES %s) AS v(id, delta)
+                WHERE p.id = v.id
+                RETURNING p.id
+                """.formatted(values));
+    }
+
+    private List<Long> runInChunks(List<long[]> pairs, Function<String, String> sqlForValues) {
+        if (pairs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> changed = new ArrayList<>();
+        for (int from = 0; from < pairs.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<long[]> chunk = pairs.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, pairs.size()));
+
+            String values = String.join(", ", Collections.nCopies(chunk.size(), "(?::bigint, ?::bigint)"));
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 * i] = chunk.get(i)[0];
+                args[2 * i + 1] = chunk.get(i)[1];
+            }
+            changed.addAll(jdbcTemplate.queryForList(sqlForValues.apply(values), Long.class, args));
+        }
+        return changed;
+    }
+}
@@ -1,6 +1,7 @@
 package blog.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,7 +17,22 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     @Query("SELECT COUNT(l) > 0 FROM Like l WHERE l.user.id = :userId AND l.post.id = :postId")
     boolean existByUserIdAndPostId(@Param("userId") Long userId, @Param("postId") Long postId);
 
-    // Find like by user and post (for unliking)
-    @Query("SELECT l FROM Like l WHERE l.user.id = :userId AND l.post.id = :postId")
-    Like findByUserIdAndPostId(@Param("userId") Long userId, @Param("postId") Long postId);
+    // Whether the user likes the post, or null when the post does not exist
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM likes l WHERE l.post_id = p.id AND l.user_id = :userId) "
+            + "FROM posts p WHERE p.id = :postId", nativeQuery = true)
+    Boolean findLikeState(@Param("userId") Long userId, @Param("postId") Long postId);
+
+    // Unlike in one statement, returns 1 if a like was removed
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.user.id = :userId AND l.post.id = :postId")
+    int deleteByUserIdAndPostId(@Param("userId") Long userId, @Param("postId") Long postId);
+
+    // Like in one statement, returns 0 if the post does not exist or is already liked
+    @Modifying
+    @Query(value = """
+            INSERT INTO likes (user_id, post_id, created_at)
+            SELECT :userId, p.id, now() FROM posts p WHERE p.id = :postId
+            ON CONFLICT (user_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("postId") Long postId);
 }
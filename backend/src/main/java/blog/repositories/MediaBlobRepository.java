@@ -0,0 +1,83 @@
+package blog.repositories;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Reference counting of media_blobs. acquire and release lock the blob row, so they are serialized. Once the
+// last reference is gone there is no row left to lock: lock serializes the deletion of the file with a new
+// reservation of the same content (see MediaBlobService).
+@Repository
+public class MediaBlobRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MediaBlobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // A blob reference taken by acquire: the file name of the shared copy, and whether this call created it
+    public static class BlobReference {
+
+        private final String fileName;
+        private final boolean created;
+
+        public BlobReference(String fileName, boolean created) {
+            this.fileName = fileName;
+            this.created = created;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public boolean isCreated() {
+            return created;
+        }
+    }
+
+    // Add a reference to the blob, creating it with fileName when the content is new
+    public BlobReference acquire(String sha256, String fileName, long size, String contentType) {
+        // xmax is 0 only on a freshly inserted row
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO media_blobs (sha256, file_name, size, content_type, ref_count, created_at)
+                VALUES (?, ?, ?, ?, 1, now())
+                ON CONFLICT (sha256) DO UPDATE SET ref_count = media_blobs.ref_count + 1
+                RETURNING file_name, (xmax = 0) AS created
+                """, (rs, rowNum) -> new BlobReference(rs.getString("file_name"), rs.getBoolean("created")),
+                sha256, fileName, size, contentType);
+    }
+
+    // Held until the end of the transaction. Locks of different contents may collide, which only serializes them.
+    public void lock(String sha256) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtextextended(?, 0))", rs -> {
+        }, sha256);
+    }
+
+    // Null when no blob has this content
+    public String findFileName(String sha256) {
+        List<String> fileNames = jdbcTemplate.queryForList("SELECT file_name FROM media_blobs WHERE sha256 = ?",
+                String.class, sha256);
+        return fileNames.isEmpty() ? null : fileNames.get(0);
+    }
+
+    public boolean exists(String sha256) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM media_blobs WHERE sha256 = ?)", Boolean.class, sha256));
+    }
+
+    // Drop a reference; returns the file name when it was the last one and the blob row is gone
+    public String release(String sha256) {
+        List<Long> remaining = jdbcTemplate.queryForList(
+                "UPDATE media_blobs SET ref_count = ref_count - 1 WHERE sha256 = ? RETURNING ref_count",
+                Long.class, sha256);
+        if (remaining.isEmpty() || remaining.get(0) > 0) {
+            return null;
+        }
+        List<String> deleted = jdbcTemplate.queryForList(
+                "DELETE FROM media_blobs WHERE sha256 = ? AND ref_count <= 0 RETURNING file_name",
+                String.class, sha256);
+        return deleted.isEmpty() ? null : deleted.get(0);
+    }
+}
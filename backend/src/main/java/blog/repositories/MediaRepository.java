@@ -1,14 +1,48 @@
 package blog.repositories;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import blog.entity.Media;
 
 @Repository
 public interface MediaRepository extends JpaRepository<Media, Long> {
+
+    // Media of a whole page of posts in one query
+    @Query("SELECT m FROM Media m WHERE m.post.id IN :postIds ORDER BY m.id")
+    List<Media> findByPostIdIn(@Param("postIds") Collection<Long> postIds);
+
+    // Media of every post of a user, released before the user and their posts are deleted
+    @Query("SELECT m FROM Media m WHERE m.post.creator.id = :userId")
+    List<Media> findByPostCreatorId(@Param("userId") Long userId);
+
+    // Recorded by the derivative workers for every media sharing the file
+    @Transactional
+    @Modifying
+    @Query("UPDATE Media m SET m.variants = :variants WHERE m.url = :url")
+    int updateVariants(@Param("url") String url, @Param("variants") String variants);
+
+    // URLs still in the flat layout (/files/posts/<name>), in order, for UploadLayoutMigration
+    @Query("SELECT DISTINCT m.url FROM Media m WHERE m.url > :afterUrl AND m.url NOT LIKE '/files/posts/%/%/%' "
+            + "ORDER BY m.url")
+    List<String> findFlatUrlsAfter(@Param("afterUrl") String afterUrl, Pageable pageable);
+
+    // Every media sharing the file moves with it
+    @Transactional
+    @Modifying
+    @Query("UPDATE Media m SET m.url = :newUrl WHERE m.url = :oldUrl")
+    int updateUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+
+    // Images uploaded before derivatives existed, or whose task was dropped, by id ranges
+    @Query("SELECT m FROM Media m WHERE m.type = blog.entity.MediaType.IMAGE AND m.variants IS NULL "
+            + "AND m.id > :afterId ORDER BY m.id")
+    List<Media> findImagesWithoutVariants(@Param("afterId") Long afterId, Pageable pageable);
 }
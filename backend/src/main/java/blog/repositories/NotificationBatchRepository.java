@@ -0,0 +1,75 @@
+package blog.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import blog.entity.NotificationType;
+
+// JDBC batch writes for notifications sent to many recipients at once
+@Repository
+public class NotificationBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO notifications (creator_id, recipient_id, related_post_id, type, message, is_read, event_count,
+                created_at)
+            VALUES (?, ?, ?, ?, ?, false, 1, now())
+            """;
+
+    // Merge a new event into the recipient's open group: the latest unread row of the same type created since
+    // the start of the window. The group keeps its position and takes the creator and post of the new event.
+    private static final String COALESCE_SQL = """
+            UPDATE notifications SET creator_id = ?, related_post_id = ?, event_count = event_count + 1
+            WHERE id IN (
+                SELECT DISTINCT ON (recipient_id) id FROM notifications
+                WHERE type = ? AND is_read = false AND created_at >= ? AND recipient_id IN (%s)
+                ORDER BY recipient_id, created_at DESC, id DESC
+            )
+            RETURNING recipient_id, id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Returns the recipients whose open group absorbed the event, with the id of that group; the others need a
+    // new row
+    public Map<Long, Long> coalesceForRecipients(Long creatorId, List<Long> recipientIds, Long relatedPostId,
+            NotificationType type, LocalDateTime windowStart) {
+        if (recipientIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> args = new ArrayList<>(recipientIds.size() + 4);
+        args.add(creatorId);
+        args.add(relatedPostId);
+        args.add(type.name());
+        args.add(windowStart);
+        args.addAll(recipientIds);
+
+        String placeholders = String.join(", ", Collections.nCopies(recipientIds.size(), "?"));
+        Map<Long, Long> groups = new HashMap<>();
+        RowCallbackHandler collect = row -> groups.put(row.getLong("recipient_id"), row.getLong("id"));
+        jdbcTemplate.query(COALESCE_SQL.formatted(placeholders), collect, args.toArray());
+        return groups;
+    }
+
+    public void insertForRecipients(Long creatorId, List<Long> recipientIds, Long relatedPostId,
+            NotificationType type, String message) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, recipientIds, recipientIds.size(), (statement, recipientId) -> {
+            statement.setLong(1, creatorId);
+            statement.setLong(2, recipientId);
+            statement.setLong(3, relatedPostId);
+            statement.setString(4, type.name());
+            statement.setString(5, message);
+        });
+    }
+}
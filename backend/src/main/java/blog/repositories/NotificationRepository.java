@@ -1,18 +1,58 @@
 package blog.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import blog.entity.Notification;
+import blog.dto.response.NotificationResponseDto;
+import blog.entity.NotificationType;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
 
-    List<Notification> findByRecipientIdOrderByCreatedAtDesc(Long recipientId);
+    // Keyset page of a recipient's notifications, projected with the creator in the same query
+    @Query("SELECT new blog.dto.response.NotificationResponseDto(n.id, n.type, n.message, n.relatedPostId, "
+            + "n.isRead, n.eventCount, n.createdAt, c.id, c.username) "
+            + "FROM Notification n JOIN n.creator c "
+            + "WHERE n.recipient.id = :recipientId AND (:unreadOnly = false OR n.isRead = false) "
+            + "AND (n.createdAt, n.id) < (:createdAt, :id) "
+            + "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationResponseDto> findPageAfter(@Param("recipientId") Long recipientId,
+            @Param("unreadOnly") boolean unreadOnly, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
 
-    List<Notification> findByRecipientIdAndIsReadFalseOrderByCreatedAtDesc(Long recipientId);
+    // Returns 1 only if the notification belonged to the user and was still unread
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.recipient.id = :recipientId "
+            + "AND n.isRead = false")
+    int markAsRead(@Param("id") Long id, @Param("recipientId") Long recipientId);
 
-    Long countByRecipientIdAndIsReadFalse(Long recipientId);
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.recipient.id = :recipientId AND n.isRead = false")
+    int markAllAsRead(@Param("recipientId") Long recipientId);
+
+    // Retention: delete one batch of read notifications older than the cutoff, returns the deleted count
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM notifications WHERE id IN (
+                SELECT id FROM notifications WHERE is_read = true AND created_at < :cutoff LIMIT :batchSize)
+            """, nativeQuery = true)
+    int deleteReadOlderThan(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
+
+    // Notifications of one post event for a set of recipients (used to push freshly batch-inserted or
+    // coalesced rows)
+    @Query("SELECT n FROM Notification n JOIN FETCH n.creator WHERE n.relatedPostId = :postId AND n.type = :type "
+            + "AND n.recipient.id IN :recipientIds")
+    List<Notification> findByPostEventAndRecipients(@Param("postId") Long postId,
+            @Param("type") NotificationType type, @Param("recipientIds") Collection<Long> recipientIds);
 }
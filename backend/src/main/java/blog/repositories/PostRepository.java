@@ -1,26 +1,116 @@
 package blog.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import blog.entity.Post;
-import blog.entity.User;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
         // find all posts ordered by created Date
-        @Query("SELECT p FROM Post p ORDER BY p.createdAt DESC")
+        @Query(value = "SELECT p FROM Post p JOIN FETCH p.creator ORDER BY p.createdAt DESC, p.id DESC",
+                        countQuery = "SELECT COUNT(p) FROM Post p")
         Page<Post> findAllPosts(Pageable pageable);
 
-        @Query("SELECT p FROM Post p WHERE p.creator.id = :userId AND p.isHidden = false ORDER BY p.createdAt DESC")
+        @Query(value = "SELECT p FROM Post p JOIN FETCH p.creator WHERE p.creator.id = :userId AND p.isHidden = false "
+                        + "ORDER BY p.createdAt DESC, p.id DESC",
+                        countQuery = "SELECT COUNT(p) FROM Post p WHERE p.creator.id = :userId AND p.isHidden = false")
         Page<Post> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId, Pageable pageable);
 
-        // Find posts from users that the current user follows with pagination
-        @Query("SELECT p FROM Post p WHERE p.isHidden = false AND (p.creator = :currentUser OR p.creator IN " +
-                        "(SELECT s.following FROM Subscription s WHERE s.follower = :currentUser))")
-        Page<Post> findPostsByFollowedUsersPaged(@Param("currentUser") User currentUser, Pageable pageable);
+        // Keyset variants: seek past the (createdAt, id) cursor instead of skipping an offset, no count query
+        @Query("SELECT p FROM Post p JOIN FETCH p.creator WHERE (p.createdAt, p.id) < (:createdAt, :id) "
+                        + "ORDER BY p.createdAt DESC, p.id DESC")
+        List<Post> findAllPostsAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                        Pageable pageable);
+
+        @Query("SELECT p FROM Post p JOIN FETCH p.creator WHERE p.creator.id = :userId AND p.isHidden = false "
+                        + "AND (p.createdAt, p.id) < (:createdAt, :id) ORDER BY p.createdAt DESC, p.id DESC")
+        List<Post> findByUserIdAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                        @Param("id") Long id, Pageable pageable);
+
+        // Like count, comment count and "liked by this user" (0 or 1) of a whole page of posts in one statement
+        @Query("SELECT p.id, p.likesCount, p.commentsCount, "
+                        + "(SELECT COUNT(ul) FROM Like ul WHERE ul.post = p AND ul.user.id = :userId) "
+                        + "FROM Post p WHERE p.id IN :postIds")
+        List<Object[]> findPostStats(@Param("postIds") Collection<Long> postIds, @Param("userId") Long userId);
+
+        @Query("SELECT p.likesCount FROM Post p WHERE p.id = :postId")
+        Long findLikesCount(@Param("postId") Long postId);
+
+        // Atomic counter updates
+        @Modifying
+        @Query("UPDATE Post p SET p.likesCount = p.likesCount + :delta WHERE p.id = :postId")
+        int addToLikesCount(@Param("postId") Long postId, @Param("delta") long delta);
+
+        @Modifying
+        @Query("UPDATE Post p SET p.commentsCount = p.commentsCount + :delta WHERE p.id = :postId")
+        int addToCommentsCount(@Param("postId") Long postId, @Param("delta") long delta);
+
+        // Take back the likes and comments of a user about to be deleted from the counters of other posts
+        @Modifying
+        @Query(value = """
+                        UPDATE posts p SET likes_count = p.likes_count - 1
+                        FROM likes l WHERE l.post_id = p.id AND l.user_id = :userId
+                        """, nativeQuery = true)
+        int discountLikesOfUser(@Param("userId") Long userId);
+
+        @Modifying
+        @Query(value = """
+                        UPDATE posts p SET comments_count = p.comments_count - c.total
+                        FROM (SELECT post_id, COUNT(*) AS total FROM comments WHERE user_id = :userId GROUP BY post_id) c
+                        WHERE c.post_id = p.id
+                        """, nativeQuery = true)
+        int discountCommentsOfUser(@Param("userId") Long userId);
+
+        @Query("SELECT COALESCE(MAX(p.id), 0) FROM Post p")
+        long findMaxId();
+
+        // Recompute both counters for an id range and fix only the rows that drifted
+        @Transactional
+        @Modifying
+        @Query(value = """
+                        UPDATE posts p SET likes_count = s.likes, comments_count = s.comments
+                        FROM (SELECT p2.id,
+                                (SELECT COUNT(*) FROM likes l WHERE l.post_id = p2.id) AS likes,
+                                (SELECT COUNT(*) FROM comments c WHERE c.post_id = p2.id) AS comments
+                              FROM posts p2 WHERE p2.id > :afterId AND p2.id <= :upToId) s
+                        WHERE p.id = s.id AND (p.likes_count <> s.likes OR p.comments_count <> s.comments)
+                        """, nativeQuery = true)
+        int reconcileCounters(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+        // Posts whose fan-out was rejected or interrupted: its task would have finished since updatedAt. By id
+        // ranges, so a post that fails again does not come back in the same run.
+        @Query("SELECT p FROM Post p JOIN FETCH p.creator WHERE p.timelinePending = true AND p.updatedAt < :before "
+                        + "AND p.id > :afterId ORDER BY p.id")
+        List<Post> findTimelinePendingBefore(@Param("before") LocalDateTime before, @Param("afterId") Long afterId,
+                        Pageable pageable);
+
+        @Query("SELECT p FROM Post p JOIN FETCH p.creator WHERE p.notificationsPending = true "
+                        + "AND p.createdAt < :before AND p.id > :afterId ORDER BY p.id")
+        List<Post> findNotificationsPendingBefore(@Param("before") LocalDateTime before,
+                        @Param("afterId") Long afterId, Pageable pageable);
+
+        @Modifying
+        @Query(value = "UPDATE posts SET timeline_pending = true WHERE id = :postId", nativeQuery = true)
+        int markTimelinePending(@Param("postId") Long postId);
+
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE posts SET timeline_pending = false WHERE id = :postId", nativeQuery = true)
+        int clearTimelinePending(@Param("postId") Long postId);
+
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE posts SET notifications_pending = false WHERE id = :postId", nativeQuery = true)
+        int clearNotificationsPending(@Param("postId") Long postId);
 }
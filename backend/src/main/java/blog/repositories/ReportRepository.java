@@ -1,5 +1,6 @@
 package blog.repositories;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
@@ -37,6 +38,13 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
             @Param("reportedId") Long reportedId,
             @Param("reportedType") ReportedType reportedType);
 
+    // Report counts of a page of entities, as (reportedId, count) rows
+    @Query("SELECT r.reportedId, COUNT(r) FROM Report r WHERE r.reportedType = :reportedType "
+            + "AND r.reportedId IN :reportedIds GROUP BY r.reportedId")
+    List<Object[]> countByReportedIdsAndReportedType(
+            @Param("reportedIds") Collection<Long> reportedIds,
+            @Param("reportedType") ReportedType reportedType);
+
     @Query("SELECT r.reportedId, COUNT(r) as reportCount FROM Report r "
             + "WHERE r.reportedType = 'USER' "
             + "GROUP BY r.reportedId "
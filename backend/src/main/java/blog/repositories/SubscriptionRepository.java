@@ -1,8 +1,12 @@
 package blog.repositories;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import blog.entity.Subscription;
@@ -23,4 +27,9 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
     // Count how many users a user is following
     long countByFollower(User follower);
 
+    // One chunk of follower ids of a user, in id order after the given id
+    @Query("SELECT s.follower.id FROM Subscription s WHERE s.following.id = :userId AND s.follower.id > :afterId "
+            + "ORDER BY s.follower.id")
+    List<Long> findFollowerIdsAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
 }
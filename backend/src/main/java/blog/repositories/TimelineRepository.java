@@ -0,0 +1,96 @@
+package blog.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import blog.entity.Post;
+import blog.entity.TimelineEntry;
+
+@Repository
+public interface TimelineRepository extends JpaRepository<TimelineEntry, Long> {
+
+    // Read one page of the home feed straight from the owner's timeline index
+    @Query(value = "SELECT p FROM TimelineEntry t JOIN Post p ON p.id = t.postId JOIN FETCH p.creator "
+            + "WHERE t.ownerId = :ownerId ORDER BY t.postCreatedAt DESC, t.postId DESC",
+            countQuery = "SELECT COUNT(t) FROM TimelineEntry t WHERE t.ownerId = :ownerId")
+    Page<Post> findTimelinePosts(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    // Keyset variant: seek past the (createdAt, postId) cursor, no count query
+    @Query("SELECT p FROM TimelineEntry t JOIN Post p ON p.id = t.postId JOIN FETCH p.creator "
+            + "WHERE t.ownerId = :ownerId AND (t.postCreatedAt, t.postId) < (:createdAt, :id) "
+            + "ORDER BY t.postCreatedAt DESC, t.postId DESC")
+    List<Post> findTimelinePostsAfter(@Param("ownerId") Long ownerId, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
+
+    // Put a post into its author's own timeline
+    @Modifying
+    @Query(value = """
+            INSERT INTO timeline_entries (owner_id, post_id, author_id, post_created_at)
+            SELECT p.user_id, p.id, p.user_id, p.created_at FROM posts p
+            WHERE p.id = :postId
+            ON CONFLICT (owner_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int addToAuthorTimeline(@Param("postId") Long postId);
+
+    // Push a visible post into the timelines of the followers with an id in (afterId, upToId], one chunk of the
+    // fan-out in its own transaction
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO timeline_entries (owner_id, post_id, author_id, post_created_at)
+            SELECT s.follower_id, p.id, p.user_id, p.created_at FROM posts p
+            JOIN subscriptions s ON s.following_id = p.user_id
+            WHERE p.id = :postId AND p.is_hidden = false AND s.follower_id > :afterId AND s.follower_id <= :upToId
+            ON CONFLICT (owner_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int fanOutToFollowers(@Param("postId") Long postId, @Param("afterId") Long afterId,
+            @Param("upToId") Long upToId);
+
+    // Copy the visible posts of an author into a single owner's timeline (used on follow)
+    @Modifying
+    @Query(value = """
+            INSERT INTO timeline_entries (owner_id, post_id, author_id, post_created_at)
+            SELECT :ownerId, p.id, p.user_id, p.created_at FROM posts p
+            WHERE p.user_id = :authorId AND p.is_hidden = false
+            ON CONFLICT (owner_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int copyAuthorPosts(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM timeline_entries)", nativeQuery = true)
+    boolean hasAnyEntry();
+
+    // One-time backfill of every timeline from the posts and subscriptions tables
+    @Modifying
+    @Query(value = """
+            INSERT INTO timeline_entries (owner_id, post_id, author_id, post_created_at)
+            SELECT p.user_id, p.id, p.user_id, p.created_at FROM posts p
+            WHERE p.is_hidden = false
+            UNION ALL
+            SELECT s.follower_id, p.id, p.user_id, p.created_at FROM subscriptions s
+            JOIN posts p ON p.user_id = s.following_id
+            WHERE p.is_hidden = false
+            ON CONFLICT (owner_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int backfillAll();
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.postId = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.ownerId = :ownerId AND t.authorId = :authorId")
+    int deleteByOwnerIdAndAuthorId(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.ownerId = :userId OR t.authorId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
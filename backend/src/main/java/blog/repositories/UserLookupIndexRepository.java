@@ -0,0 +1,40 @@
+package blog.repositories;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Indexes of the case-insensitive lookup columns of users (username_lower, email_lower). They are built at
+// startup rather than declared on the entity: accounts created before the columns existed may differ only by
+// case, and a unique index would then fail the backfill. Such columns keep a plain index until the accounts
+// are renamed.
+@Repository
+public class UserLookupIndexRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserLookupIndexRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Each group of values of the column (username or email) that are equal once lower-cased, as "a, A"
+    public List<String> findCaseCollisions(String column) {
+        return jdbcTemplate.queryForList("SELECT string_agg(" + column + ", ', ' ORDER BY id) FROM users "
+                + "GROUP BY LOWER(" + column + ") HAVING COUNT(*) > 1", String.class);
+    }
+
+    public void useUniqueIndex(String lookupColumn) {
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_users_" + lookupColumn + " ON users ("
+                + lookupColumn + ")");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_users_" + lookupColumn);
+    }
+
+    public void usePlainIndex(String lookupColumn) {
+        // Earlier versions had Hibernate declare it as a unique constraint
+        jdbcTemplate.execute("ALTER TABLE users DROP CONSTRAINT IF EXISTS uk_users_" + lookupColumn);
+        jdbcTemplate.execute("DROP INDEX IF EXISTS uk_users_" + lookupColumn);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_users_" + lookupColumn + " ON users ("
+                + lookupColumn + ")");
+    }
+}
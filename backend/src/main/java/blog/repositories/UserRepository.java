@@ -1,25 +1,60 @@
 package blog.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import blog.entity.User;
+import blog.security.ActiveBan;
+import blog.security.UserState;
+import blog.util.IdentifierUtils;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    @Query("SELECT u FROM User u WHERE u.username = :identifier OR u.email = :identifier")
-    User findByUsernameOrEmail(@Param("identifier") String identifier);
+    List<User> findByUsernameLower(String usernameLower);
 
-    boolean existsByUsername(String username);
+    List<User> findByEmailLower(String emailLower);
 
-    boolean existsByEmail(String email);
+    // One probe of the index matching the identifier's shape, whatever its case. Legacy accounts differing only
+    // by case share a lookup key: the exact spelling then tells them apart.
+    default User findByIdentifier(String identifier) {
+        String normalized = IdentifierUtils.normalize(identifier);
+        if (normalized == null || normalized.isEmpty()) {
+            return null;
+        }
+        boolean email = IdentifierUtils.isEmail(normalized);
+        List<User> matches = email ? findByEmailLower(normalized) : findByUsernameLower(normalized);
+        if (matches.size() == 1) {
+            return matches.get(0);
+        }
+        for (User user : matches) {
+            if ((email ? user.getEmail() : user.getUsername()).equals(identifier.trim())) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    boolean existsByUsernameLower(String usernameLower);
+
+    boolean existsByEmailLower(String emailLower);
+
+    // Fills the lookup columns of users created before they existed
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.usernameLower = LOWER(u.username), u.emailLower = LOWER(u.email) "
+            + "WHERE u.usernameLower IS NULL OR u.emailLower IS NULL")
+    int backfillLookupColumns();
 
     // for user management in admin dashboard
     Page<User> findAllByOrderByIdDesc(Pageable pageable);
@@ -32,4 +67,75 @@ public interface UserRepository extends JpaRepository<User, Long> {
                 LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :query, '%'))
                 """)
     public List<User> searchUsers(@Param("query") String query);
+
+    // Used by rehash-on-login, outside any request transaction
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :userId")
+    int updatePassword(@Param("userId") Long userId, @Param("password") String password);
+
+    // Auth state read by the JWT filter through UserStateCache
+    @Query("SELECT new blog.security.UserState(u.role, u.tokenVersion) FROM User u WHERE u.id = :userId")
+    UserState findUserState(@Param("userId") Long userId);
+
+    // Loads BanRegistry at startup
+    @Query("SELECT new blog.security.ActiveBan(u.id, u.bannedUntil, u.banReason) FROM User u WHERE u.isBanned = true")
+    List<ActiveBan> findBans();
+
+    // Clear the flag of temporary bans that have ended, in one statement for the whole sweep
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.isBanned = false WHERE u.id IN :userIds AND u.isBanned = true "
+            + "AND u.bannedUntil <= :now")
+    int liftExpiredBans(@Param("userIds") List<Long> userIds, @Param("now") LocalDateTime now);
+
+    // Guarded by the URL: the image may have been replaced while its avatars were generated
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.avatarVariants = :variants WHERE u.id = :userId AND u.profileImgUrl = :url")
+    int updateAvatarVariants(@Param("userId") Long userId, @Param("url") String url,
+            @Param("variants") String variants);
+
+    @Query("SELECT u FROM User u WHERE u.profileImgUrl IS NOT NULL AND u.avatarVariants IS NULL "
+            + "AND u.id > :afterId ORDER BY u.id")
+    List<User> findWithoutAvatarVariants(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Profile images still in the flat layout (/files/<name>), by id ranges, for UploadLayoutMigration
+    @Query("SELECT u FROM User u WHERE u.id > :afterId AND u.profileImgUrl IS NOT NULL "
+            + "AND u.profileImgUrl NOT LIKE '/files/%/%/%' ORDER BY u.id")
+    List<User> findWithFlatProfileImgAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Guarded by the old URL in case the user changed their picture meanwhile
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.profileImgUrl = :newUrl WHERE u.id = :userId AND u.profileImgUrl = :oldUrl")
+    int updateProfileImgUrl(@Param("userId") Long userId, @Param("oldUrl") String oldUrl,
+            @Param("newUrl") String newUrl);
+
+    // Invalidates every token issued before: they carry the previous version
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.id = :userId")
+    int incrementTokenVersion(@Param("userId") Long userId);
+
+    @Query("SELECT u.unreadNotificationsCount FROM User u WHERE u.id = :userId")
+    Long findUnreadNotificationsCount(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.unreadNotificationsCount = u.unreadNotificationsCount + :delta WHERE u.id = :userId")
+    int addToUnreadNotificationsCount(@Param("userId") Long userId, @Param("delta") long delta);
+
+    // One more unread notification for each recipient of a batch
+    @Modifying
+    @Query("UPDATE User u SET u.unreadNotificationsCount = u.unreadNotificationsCount + 1 WHERE u.id IN :userIds")
+    int incrementUnreadNotificationsCounts(@Param("userIds") Collection<Long> userIds);
+
+    // Recompute the counters from the notifications table, fixing only the rows that drifted
+    @Modifying
+    @Query(value = """
+            UPDATE users u SET unread_notifications_count = COALESCE(c.unread, 0)
+            FROM users u2 LEFT JOIN (SELECT recipient_id, COUNT(*) AS unread FROM notifications
+                                     WHERE is_read = false GROUP BY recipient_id) c ON c.recipient_id = u2.id
+            WHERE u.id = u2.id AND u.unread_notifications_count <> COALESCE(c.unread, 0)
+            """, nativeQuery = true)
+    int reconcileUnreadNotificationsCounts();
 }
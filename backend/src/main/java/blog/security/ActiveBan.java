@@ -0,0 +1,33 @@
+package blog.security;
+
+import java.time.LocalDateTime;
+
+// A ban held by BanRegistry; bannedUntil is null for a permanent ban
+public class ActiveBan {
+
+    private final Long userId;
+    private final LocalDateTime bannedUntil;
+    private final String reason;
+
+    public ActiveBan(Long userId, LocalDateTime bannedUntil, String reason) {
+        this.userId = userId;
+        this.bannedUntil = bannedUntil;
+        this.reason = reason;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getBannedUntil() {
+        return bannedUntil;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return bannedUntil != null && !now.isBefore(bannedUntil);
+    }
+}
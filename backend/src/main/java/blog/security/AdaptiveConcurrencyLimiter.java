@@ -0,0 +1,128 @@
+package blog.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import blog.dto.response.ConcurrencyLimitStatsResponseDto;
+
+// Limit on the requests processed at once, adjusted from their latency (gradient algorithm). A short and a
+// long moving average of the response time are kept: while the short one stays near the long one the limit
+// grows by about sqrt(limit), and when requests start queueing somewhere (Tomcat, the Hikari pool) the short
+// average rises and the limit shrinks in proportion. Each priority may only fill part of the limit, so the
+// lower classes are refused first.
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Priority {
+        // Admin and auth endpoints
+        CRITICAL(1.0),
+        // Feed reads and regular writes
+        STANDARD(0.85),
+        // Media uploads
+        UPLOAD(0.6);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private static final double SHORT_RTT_WEIGHT = 0.2;
+    private static final double LONG_RTT_WEIGHT = 0.01;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLongArray dropped = new AtomicLongArray(Priority.values().length);
+
+    // Written under the lock in onSample, read without it
+    private volatile double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(@Value("${load-shedding.initial-limit:50}") int initialLimit,
+            @Value("${load-shedding.min-limit:10}") int minLimit,
+            @Value("${load-shedding.max-limit:200}") int maxLimit,
+            @Value("${load-shedding.rtt-tolerance:1.5}") double tolerance) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    // Take a slot for a request of this priority, false when it should be shed
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                dropped.incrementAndGet(priority.ordinal());
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // Give the slot back; rttNanos is negative for requests whose duration depends on their size
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        if (rttNanos >= 0) {
+            onSample(rttNanos, current);
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int concurrent) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_WEIGHT;
+
+        // Latency is recovering: let the baseline follow quickly instead of keeping the overload in it
+        if (longRttNanos > shortRttNanos * 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // Far below the limit the latency says nothing about it, do not let it grow unused
+        double current = limit;
+        if (concurrent < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public ConcurrencyLimitStatsResponseDto getStats() {
+        Map<String, Long> droppedByPriority = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            droppedByPriority.put(priority.name(), dropped.get(priority.ordinal()));
+        }
+        double shortRtt;
+        double longRtt;
+        synchronized (this) {
+            shortRtt = shortRttNanos;
+            longRtt = longRttNanos;
+        }
+        return new ConcurrencyLimitStatsResponseDto((int) limit, inFlight.get(), admitted.get(), droppedByPriority,
+                shortRtt / TimeUnit.MILLISECONDS.toNanos(1), longRtt / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,70 @@
+package blog.security;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import blog.entity.Role;
+
+// Immutable principal built from the JWT claims, so authenticating a request needs no user entity
+public final class AuthenticatedUser {
+
+    private final long id;
+    private final String username;
+    private final Role role;
+    private final long tokenVersion;
+    private final String tokenId;
+    private final long expiresAt;
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public AuthenticatedUser(long id, String username, Role role, long tokenVersion, String tokenId,
+            long expiresAt) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    // jti of the access token this principal was read from
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -0,0 +1,102 @@
+package blog.security;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import blog.repositories.UserRepository;
+
+// Banned users by id, so the JWT filter checks bans without a query (login and refresh check the user row they
+// load anyway). Loaded from users.is_banned at startup, updated by ModerationService once its transaction
+// commits, and reloaded every bans.sync-interval-ms to pick up bans and unbans made on other instances.
+// Temporary bans stop applying as soon as they expire; the sweeper then clears their is_banned flag in one
+// update.
+@Component
+public class BanRegistry {
+
+    private final UserRepository userRepository;
+    private final ConcurrentHashMap<Long, ActiveBan> bans = new ConcurrentHashMap<>();
+
+    public BanRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        sync();
+        sweepExpired();
+    }
+
+    // Replace the entries with the bans in the table
+    @Scheduled(fixedDelayString = "${bans.sync-interval-ms:30000}")
+    public synchronized void sync() {
+        Set<Long> bannedIds = new HashSet<>();
+        for (ActiveBan ban : userRepository.findBans()) {
+            bans.put(ban.getUserId(), ban);
+            bannedIds.add(ban.getUserId());
+        }
+        bans.keySet().retainAll(bannedIds);
+    }
+
+    // The user's ban, or null when the user is not banned (anymore)
+    public ActiveBan find(long userId) {
+        ActiveBan ban = bans.get(userId);
+        if (ban == null || ban.isExpired(LocalDateTime.now())) {
+            return null;
+        }
+        return ban;
+    }
+
+    // Applied once the current transaction commits, so a rolled back ban or unban is never seen
+    public void ban(long userId, LocalDateTime bannedUntil, String reason) {
+        afterCommit(() -> bans.put(userId, new ActiveBan(userId, bannedUntil, reason)));
+    }
+
+    public void lift(long userId) {
+        afterCommit(() -> bans.remove(userId));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bans.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ActiveBan> expired = new ArrayList<>();
+        for (ActiveBan ban : bans.values()) {
+            if (ban.isExpired(now)) {
+                expired.add(ban);
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        List<Long> userIds = expired.stream().map(ActiveBan::getUserId).toList();
+        userRepository.liftExpiredBans(userIds, now);
+        // A user banned again in the meantime has a new entry, which stays
+        for (ActiveBan ban : expired) {
+            bans.remove(ban.getUserId(), ban);
+        }
+    }
+}
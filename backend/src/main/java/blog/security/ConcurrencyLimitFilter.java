@@ -0,0 +1,73 @@
+package blog.security;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import blog.security.AdaptiveConcurrencyLimiter.Priority;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Sheds requests above the adaptive concurrency limit with 503 before any authentication or database work,
+// so an overload fails fast instead of queueing until the connection pool times out
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final boolean enabled;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter,
+            @Value("${load-shedding.enabled:true}") boolean enabled) {
+        this.limiter = limiter;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // The notification stream stays open for minutes and holds no database connection
+        return !enabled || "OPTIONS".equals(request.getMethod())
+                || request.getRequestURI().equals("/api/notifications/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI();
+        Priority priority = priorityFor(request.getMethod(), path);
+        if (!limiter.tryAcquire(priority)) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"message\":\"The server is busy. Please try again in a moment.\",\"status\":503,\"error\":\"Service Unavailable\"}");
+            return;
+        }
+
+        // Uploads and file downloads take as long as their size, they would skew the latency estimate
+        boolean sampled = priority != Priority.UPLOAD && !path.startsWith("/files/");
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(sampled ? System.nanoTime() - start : -1);
+        }
+    }
+
+    private Priority priorityFor(String method, String path) {
+        if (path.startsWith("/api/admin/") || path.startsWith("/auth/")) {
+            return Priority.CRITICAL;
+        }
+        if ((path.equals("/api/post") && "POST".equals(method))
+                || (path.startsWith("/api/post/") && "PUT".equals(method))
+                || (path.equals("/profile/picture") && "POST".equals(method))) {
+            return Priority.UPLOAD;
+        }
+        return Priority.STANDARD;
+    }
+}
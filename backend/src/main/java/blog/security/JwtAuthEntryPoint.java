@@ -26,15 +26,15 @@ public class JwtAuthEntryPoint implements AuthenticationEntryPoint {
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
 
-        String errorMessage = "Authentication required to access this resource";
+        ErrorResponseDto err = new ErrorResponseDto("Unauthorized", 401,
+                "Authentication required to access this resource");
 
+        // A token was sent but not accepted: the reason is shown to the user when the session cannot be renewed
         Object jwtError = request.getAttribute("jwt_error");
         if (jwtError != null) {
-            errorMessage = jwtError.toString();
+            err = new ErrorResponseDto(jwtError.toString(), 401, "Unauthorized");
         }
 
-        ErrorResponseDto err = new ErrorResponseDto("Unauthorized", 401, errorMessage);
-
         String jsonResponse = objectMapper.writeValueAsString(err);
         response.getWriter().write(jsonResponse);
     }
@@ -3,31 +3,36 @@ package blog.security;
 import java.io.IOException;
 
 import org.springframework.lang.NonNull;
-import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import blog.entity.User;
-import blog.exceptions.UserNotFoundException;
-import blog.services.UserDetailsServiceImpl;
 import blog.util.BanMessageFormatter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+// Authenticates from the token claims; the only per-user data needed comes from BanRegistry and
+// UserStateCache, so a request does not load the user entity.
+// A token that is not accepted (expired, revoked, outdated...) leaves the request anonymous with the reason in
+// the jwt_error attribute: protected routes then get a 401 from JwtAuthEntryPoint, which makes the client
+// refresh its session, and public ones (/auth/refresh, /auth/logout) still work.
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final UserStateCache userStateCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final BanRegistry banRegistry;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserStateCache userStateCache,
+            TokenRevocationList tokenRevocationList, BanRegistry banRegistry) {
         this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+        this.userStateCache = userStateCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.banRegistry = banRegistry;
     }
 
     @Override
@@ -41,52 +46,50 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        String rejection = null;
+        ActiveBan ban = null;
         try {
             String jwt = authHeader.substring(7);
-            String username = jwtUtils.getUsernameFromJwt(jwt);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Signature and expiry are checked while parsing
+                AuthenticatedUser principal = jwtUtils.getAuthenticatedUser(jwt);
+                UserState state = null;
 
-                // Check if user is banned
-                if (userDetails instanceof User user) {
-                    if (user.isActiveBan()) {
-                        String banMessage = BanMessageFormatter.formatBanMessage(user.getBannedUntil(), user.getBanReason());
-                        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-                        response.setContentType("application/json");
-                        response.getWriter().write("{\"message\":\"" + banMessage + "\",\"status\":403,\"error\":\"Your account has been banned\"}");
-                        return;
-                    }
-                }
-
-                if (userDetails != null && jwtUtils.validateToken(jwt)) {
+                if (tokenRevocationList.isRevoked(principal.getTokenId())) {
+                    // Logged out: this token was revoked before its expiry
+                    rejection = "Your session has ended. Please log in again.";
+                } else if ((state = userStateCache.get(principal.getId())) == null) {
+                    // User not found in DB (deleted user)
+                    rejection = "User account not found. Please log in again.";
+                } else if ((ban = banRegistry.find(principal.getId())) != null) {
+                    // Answered with the ban below
+                } else if (principal.getTokenVersion() != state.getTokenVersion()) {
+                    // Issued before a ban or a role change
+                    rejection = "Your session is no longer valid. Please log in again.";
+                } else {
                     UsernamePasswordAuthenticationToken authentication
-                            = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    authentication.setDetails(userDetails);
+                            = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
                     SecurityContextHolder.getContext().setAuthentication(authentication);
-                } else {
-                    // JWT invalid
-                    request.setAttribute("jwt_error", "Token has expired. Please login again.");
-                    return;
                 }
             }
-        } catch (DisabledException ex) {
-            // User is banned
+        } catch (Exception ex) {
+            // Any other error (expired token, JWT parsing, DB error, etc.)
+            rejection = "Authentication failed";
+        }
+
+        if (ban != null) {
+            String banMessage = BanMessageFormatter.formatBanMessage(ban.getBannedUntil(), ban.getReason());
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
             response.setContentType("application/json");
-            response.getWriter().write("{\"message\":\"" + ex.getMessage() + "\",\"status\":403,\"error\":\"Your account has been banned\"}");
-            return;
-        } catch (UserNotFoundException ex) {
-            // User not found in DB (deleted user)
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.getWriter().write("{\"message\":\"User account not found. Please log in again.\",\"status\":401,\"error\":\"Unauthorized\"}");
-            return;
-        } catch (Exception ex) {
-            // Any other error (JWT parsing, DB error, etc.)
-            request.setAttribute("jwt_error", "Authentication failed");
+            response.getWriter().write("{\"message\":\"" + banMessage + "\",\"status\":403,\"error\":\"Your account has been banned\"}");
             return;
         }
+        if (rejection != null) {
+            // Go on without authentication: the entry point answers 401 with this message if the route needs a user
+            SecurityContextHolder.clearContext();
+            request.setAttribute("jwt_error", rejection);
+        }
         filterChain.doFilter(request, response);
 
     }
@@ -2,15 +2,17 @@ package blog.security;
 
 import java.security.Key;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import blog.entity.Role;
 import blog.entity.User;
 import blog.exceptions.InvalidTokenException;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -18,13 +20,26 @@ import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 
+// The signing key and the parser are built once: both are immutable and shared by all requests
 @Service
 public class JwtUtils {
-    @Value("${jwt.secret}")
-    private String jwtSecret;
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_CLAIM = "role";
+    private static final String VERSION_CLAIM = "ver";
+
+    private final long jwtExpiration;
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final VerifiedTokenCache verifiedTokens;
+
+    public JwtUtils(@Value("${jwt.secret}") String jwtSecret, @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.verified-cache.max-entries:10000}") int verifiedCacheSize) {
+        this.jwtExpiration = jwtExpiration;
+        this.signInKey = createSignInKey(jwtSecret);
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.verifiedTokens = new VerifiedTokenCache(verifiedCacheSize);
+    }
 
     public String generateToken(User user) {
         try {
@@ -33,21 +48,21 @@ public class JwtUtils {
             Date expaireDate = new Date(now.getTime() + jwtExpiration);
 
             return Jwts.builder().setSubject(username).setIssuedAt(now).setExpiration(expaireDate)
-                    .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                    .setId(UUID.randomUUID().toString())
+                    .claim(USER_ID_CLAIM, user.getId())
+                    .claim(ROLE_CLAIM, user.getRole().name())
+                    .claim(VERSION_CLAIM, user.getTokenVersion())
+                    .signWith(signInKey, SignatureAlgorithm.HS256)
                     .compact();
         } catch (Exception e) {
             throw new InvalidTokenException("Failed to generate Token");
         }
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
+    // Validate and extract in one parse: signature and expiry are checked by the parser itself
+    public Claims parseClaims(String token) {
         try {
-            return Jwts.parserBuilder().setSigningKey(getSignInKey()).build().parseClaimsJws(token).getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (SecurityException e) {
             throw new InvalidTokenException("Invalid JWT signature");
         } catch (MalformedJwtException e) {
@@ -61,43 +76,30 @@ public class JwtUtils {
         }
     }
 
-    private Date extractExpirationDate(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private boolean isTokenExpired(String token) {
-        try {
-            return extractExpirationDate(token).before(new Date());
-        } catch (Exception e) {
-            return true;
+    // Verify the token and build the request principal from its claims alone. A token verified before is
+    // served from the cache until it expires, without parsing it or checking its signature again.
+    public AuthenticatedUser getAuthenticatedUser(String token) {
+        AuthenticatedUser cached = verifiedTokens.get(token);
+        if (cached != null) {
+            return cached;
         }
-    }
 
-    public boolean validateToken(String token) {
-        try {
-            if (token == null || token.trim().isEmpty()) {
-                return false;
-            }
-
-            return !isTokenExpired(token);
-
-        } catch (ExpiredJwtException e) {
-            return false;
-        } catch (Exception e) {
-            return false;
+        Claims claims = parseClaims(token);
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Number version = claims.get(VERSION_CLAIM, Number.class);
+        if (userId == null || role == null || version == null) {
+            throw new InvalidTokenException("JWT token is missing user claims");
         }
-    }
+        long expiresAt = claims.getExpiration().getTime();
+        AuthenticatedUser principal = new AuthenticatedUser(userId.longValue(), claims.getSubject(),
+                Role.valueOf(role), version.longValue(), claims.getId(), expiresAt);
 
-    public String getUsernameFromJwt(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder().setSigningKey(getSignInKey()).build().parseClaimsJws(token).getBody();
-            return claims.getSubject();
-        } catch (Exception e) {
-            throw new InvalidTokenException("Failed to extract username from JWT token");
-        }
+        verifiedTokens.put(token, principal, expiresAt);
+        return principal;
     }
 
-    private Key getSignInKey() {
+    private static Key createSignInKey(String jwtSecret) {
         try {
             byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
             return Keys.hmacShaKeyFor(keyBytes);
@@ -0,0 +1,181 @@
+package blog.security;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Token buckets per route group, keyed by user id once JwtAuthenticationFilter has run, or by client IP for
+// anonymous requests. Each limit is "capacity/seconds": a full bucket allows a burst of capacity requests and
+// refills at capacity per period. A bucket is one AtomicLong holding the time it will be full again (GCRA),
+// so taking a token is a single CAS and a bucket left idle until full can simply be dropped.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Limit auth;
+    private final Limit upload;
+    private final Limit search;
+    private final Limit report;
+    private final Limit write;
+    private final Limit read;
+
+    public RateLimitFilter(@Value("${rate-limit.enabled:true}") boolean enabled,
+            @Value("${rate-limit.max-entries:100000}") int maxEntries,
+            @Value("${rate-limit.groups.auth:10/60}") String auth,
+            @Value("${rate-limit.groups.upload:10/60}") String upload,
+            @Value("${rate-limit.groups.search:60/60}") String search,
+            @Value("${rate-limit.groups.report:10/60}") String report,
+            @Value("${rate-limit.groups.write:120/60}") String write,
+            @Value("${rate-limit.groups.read:600/60}") String read) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.auth = Limit.parse(auth);
+        this.upload = Limit.parse(upload);
+        this.search = Limit.parse(search);
+        this.report = Limit.parse(report);
+        this.write = Limit.parse(write);
+        this.read = Limit.parse(read);
+    }
+
+    private static final class Limit {
+        private final int capacity;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final ConcurrentHashMap<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private Limit(int capacity, long periodSeconds) {
+            this.capacity = capacity;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(periodSeconds) / capacity;
+            this.burstNanos = intervalNanos * capacity;
+        }
+
+        private static Limit parse(String spec) {
+            int separator = spec.indexOf('/');
+            return new Limit(Integer.parseInt(spec.substring(0, separator).trim()),
+                    Long.parseLong(spec.substring(separator + 1).trim()));
+        }
+
+        // Tokens left after taking one, or -1 when the bucket is empty
+        private long tryAcquire(AtomicLong bucket, long now) {
+            while (true) {
+                long fullAt = bucket.get();
+                long next = Math.max(fullAt - now, 0) + intervalNanos;
+                if (next > burstNanos) {
+                    return -1;
+                }
+                if (bucket.compareAndSet(fullAt, now + next)) {
+                    return (burstNanos - next) / intervalNanos;
+                }
+            }
+        }
+
+        // Seconds until the bucket holds a token again
+        private long secondsUntilToken(AtomicLong bucket, long now) {
+            long waitNanos = bucket.get() - now + intervalNanos - burstNanos;
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // Preflights and the public file server are not limited
+        return !enabled || "OPTIONS".equals(request.getMethod()) || request.getRequestURI().startsWith("/files/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Limit limit = limitFor(request.getMethod(), request.getRequestURI());
+        long now = System.nanoTime();
+        AtomicLong bucket = bucketFor(limit, clientKey(limit, request), now);
+        long remaining = limit.tryAcquire(bucket, now);
+
+        response.setHeader("X-RateLimit-Limit", Integer.toString(limit.capacity));
+        response.setHeader("X-RateLimit-Remaining", Long.toString(Math.max(remaining, 0)));
+
+        if (remaining < 0) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", Long.toString(limit.secondsUntilToken(bucket, now)));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"message\":\"Too many requests. Please try again later.\",\"status\":429,\"error\":\"Too Many Requests\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Limit limitFor(String method, String path) {
+        boolean get = "GET".equals(method);
+        if (path.startsWith("/auth/")) {
+            return get || path.equals("/auth/logout") ? read : auth;
+        }
+        if (get) {
+            return path.equals("/profile/search") ? search : read;
+        }
+        // Post creation and edits carry the media uploads
+        if ((path.equals("/api/post") && "POST".equals(method))
+                || (path.startsWith("/api/post/") && "PUT".equals(method))
+                || (path.equals("/profile/picture") && "POST".equals(method))) {
+            return upload;
+        }
+        if (path.equals("/api/reports")) {
+            return report;
+        }
+        return write;
+    }
+
+    // Login and registration are always keyed by IP: the caller is anonymous and the identifier is not trusted
+    private Object clientKey(Limit limit, HttpServletRequest request) {
+        if (limit != auth) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                return user.getId();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private AtomicLong bucketFor(Limit limit, Object key, long now) {
+        AtomicLong bucket = limit.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (limit.buckets.size() >= maxEntries) {
+            evictFull(limit, now);
+        }
+        return limit.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictFullBuckets() {
+        long now = System.nanoTime();
+        for (Limit limit : new Limit[] { auth, upload, search, report, write, read }) {
+            evictFull(limit, now);
+        }
+    }
+
+    // A bucket that refilled completely behaves like a new one, dropping it loses nothing
+    private void evictFull(Limit limit, long now) {
+        limit.buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        if (limit.buckets.size() >= maxEntries) {
+            // Every bucket is in use: keep the memory bound rather than the limits
+            limit.buckets.clear();
+        }
+    }
+}
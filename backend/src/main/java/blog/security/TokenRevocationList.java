@@ -0,0 +1,65 @@
+package blog.security;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import blog.entity.RevokedToken;
+import blog.repositories.RevokedTokenRepository;
+
+// Revoked access tokens, by jti, kept in memory until they would have expired anyway. Access tokens are
+// short-lived, so the set stays small. It is rebuilt from revoked_tokens at startup and picks up rows written
+// by other instances on every sync. Each sync reads every unexpired row again rather than the rows past the last
+// id seen: ids are taken at insert, so a revocation committing after a higher id would otherwise be skipped.
+@Component
+public class TokenRevocationList {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        Long expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public void revoke(String tokenId, long expiresAt) {
+        if (tokenId == null || expiresAt <= System.currentTimeMillis() || revoked.containsKey(tokenId)) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(tokenId,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault())));
+        revoked.put(tokenId, expiresAt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        sync();
+    }
+
+    // Load the rows, then forget what has expired in memory and in the table
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:30000}")
+    public synchronized void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findActive(now)) {
+            revoked.putIfAbsent(token.getTokenId(),
+                    token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        revokedTokenRepository.deleteExpired(now);
+    }
+}
@@ -0,0 +1,23 @@
+package blog.security;
+
+import blog.entity.Role;
+
+// The part of a user that can invalidate its tokens: role and token version. Bans are held by BanRegistry.
+public class UserState {
+
+    private final Role role;
+    private final long tokenVersion;
+
+    public UserState(Role role, long tokenVersion) {
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+}
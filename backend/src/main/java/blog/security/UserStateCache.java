@@ -0,0 +1,70 @@
+package blog.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import blog.repositories.UserRepository;
+
+// Per-user auth state read by the JWT filter. Entries are loaded once per user and dropped by
+// ModerationService when a role or token version changes; the TTL only bounds changes made elsewhere.
+@Component
+public class UserStateCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public UserStateCache(UserRepository userRepository,
+            @Value("${security.user-state.ttl-seconds:300}") long ttlSeconds,
+            @Value("${security.user-state.max-entries:100000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    // A null state (deleted user) is cached too, so a dead token does not hit the database on every request
+    private static final class Entry {
+        private final UserState state;
+        private final long loadedAt;
+
+        private Entry(UserState state, long loadedAt) {
+            this.state = state;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // Current state of the user, or null when the user no longer exists
+    public UserState get(long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry != null && now - entry.loadedAt < ttlMillis) {
+            return entry.state;
+        }
+
+        UserState state = userRepository.findUserState(userId);
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(userId, new Entry(state, now));
+        return state;
+    }
+
+    // Drop the entry now and again once the surrounding transaction commits, so a request racing with the
+    // change cannot keep the old state cached
+    public void invalidate(long userId) {
+        entries.remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(userId);
+                }
+            });
+        }
+    }
+}
@@ -19,6 +19,7 @@ import blog.entity.User;
 import blog.repositories.PostRepository;
 import blog.repositories.ReportRepository;
 import blog.repositories.UserRepository;
+import blog.util.CursorUtils;
 
 @Service
 public class AdminService {
@@ -26,11 +27,14 @@ public class AdminService {
     private final UserRepository userRepository;
     private final PostRepository postRepository;
     private final ReportRepository reportRepository;
+    private final PostResponseAssembler postResponseAssembler;
 
-    public AdminService(ReportRepository reportRepository, PostRepository postRepository, UserRepository userRepository) {
+    public AdminService(ReportRepository reportRepository, PostRepository postRepository, UserRepository userRepository,
+            PostResponseAssembler postResponseAssembler) {
         this.reportRepository = reportRepository;
         this.postRepository = postRepository;
         this.userRepository = userRepository;
+        this.postResponseAssembler = postResponseAssembler;
     }
 
     // Get dashboard statistics for admin panel
@@ -87,13 +91,7 @@ public class AdminService {
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> postPage = postRepository.findAllPosts(pageable);
 
-        List<PostResponseDto> postDtos = postPage.getContent().stream()
-                .map(post -> {
-                    long reportCount = reportRepository.countByReportedIdAndReportedType(
-                            post.getId(), ReportedType.POST);
-                    return PostResponseDto.forAdminDash(post, reportCount);
-                })
-                .collect(Collectors.toList());
+        List<PostResponseDto> postDtos = postResponseAssembler.toAdminDtos(postPage.getContent());
 
         return new PageResponse<>(
                 postDtos,
@@ -103,4 +101,16 @@ public class AdminService {
         );
     }
 
+    // Keyset mode of the admin post list: seeks on (createdAt, id) and skips the count query
+    public PageResponse<PostResponseDto> getAllPostsByCursor(String cursor, int size) {
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        List<Post> posts = postRepository.findAllPostsAfter(position.getCreatedAt(), position.getId(),
+                PageRequest.of(0, size + 1));
+        String nextCursor = CursorUtils.trimAndEncode(posts, size, Post::getCreatedAt, Post::getId);
+
+        List<PostResponseDto> postDtos = postResponseAssembler.toAdminDtos(posts);
+
+        return new PageResponse<>(postDtos, nextCursor);
+    }
+
 }
@@ -1,38 +1,38 @@
 package blog.services;
 
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.DisabledException;
-import org.springframework.security.authentication.LockedException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import blog.dto.request.LoginRequestDto;
 import blog.dto.request.RegisterRequestDto;
 import blog.entity.User;
 import blog.exceptions.InvalidCredentialsException;
+import blog.exceptions.TooManyRequestsException;
 import blog.exceptions.UserAlreadyExistsException;
 import blog.exceptions.UserisBannedException;
 import blog.exceptions.ValidationException;
 import blog.repositories.UserRepository;
+import blog.security.AuthenticatedUser;
+import blog.security.TokenRevocationList;
 import blog.util.BanMessageFormatter;
+import blog.util.IdentifierUtils;
 
 @Service
 public class AuthService {
 
     private final UserRepository userRespository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginAttemptCache loginAttemptCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationList tokenRevocationList;
 
-    public AuthService(UserRepository userRespository, PasswordEncoder passwordEncoder,
-            AuthenticationManager authenticationManager) {
+    public AuthService(UserRepository userRespository, PasswordHashingService passwordHashingService,
+            LoginAttemptCache loginAttemptCache, RefreshTokenService refreshTokenService,
+            TokenRevocationList tokenRevocationList) {
         this.userRespository = userRespository;
-        this.passwordEncoder = passwordEncoder;
-        this.authenticationManager = authenticationManager;
+        this.passwordHashingService = passwordHashingService;
+        this.loginAttemptCache = loginAttemptCache;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     public User saveUser(RegisterRequestDto registerRequest) {
@@ -52,8 +52,8 @@ public class AuthService {
             throw new ValidationException("Password is required");
         }
 
-        if (userRespository.existsByUsername(registerRequest.getUsername())
-                || userRespository.existsByEmail(registerRequest.getEmail())) {
+        if (userRespository.existsByUsernameLower(IdentifierUtils.normalize(registerRequest.getUsername()))
+                || userRespository.existsByEmailLower(IdentifierUtils.normalize(registerRequest.getEmail()))) {
             throw new UserAlreadyExistsException("username or email already exists");
         }
 
@@ -63,7 +63,7 @@ public class AuthService {
         user.setFirstName(registerRequest.getFirstName().trim());
         user.setLastName(registerRequest.getLastName().trim());
         user.setEmail(registerRequest.getEmail().trim());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPassword(passwordHashingService.encode(registerRequest.getPassword()));
         if (registerRequest.getBio() != null && !registerRequest.getBio().trim().isEmpty()) {
             user.setBio(registerRequest.getBio());
         }
@@ -72,26 +72,61 @@ public class AuthService {
     }
 
     public User login(LoginRequestDto loginRequest) {
-        // First, check if user exists and is banned
-        User user = userRespository.findByUsernameOrEmail(loginRequest.getIdentifier());
-        if (user != null && user.isActiveBan()) {
-            String banMessage = BanMessageFormatter.formatBanMessage(user.getBannedUntil(), user.getBanReason());
-            throw new UserisBannedException(banMessage);
+        String identifier = loginRequest.getIdentifier();
+
+        // Identifiers that keep failing are refused before any lookup or hashing
+        long blockedFor = loginAttemptCache.blockedForSeconds(identifier);
+        if (blockedFor > 0) {
+            throw new TooManyRequestsException("Too many failed login attempts. Please try again later", blockedFor);
         }
 
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginRequest.getIdentifier(), loginRequest.getPassword()));
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        // First, check if user exists and is banned
+        User user = userRespository.findByIdentifier(identifier);
+        if (user != null) {
+            checkNotBanned(user);
+        }
 
-            return (User) authentication.getPrincipal();
-        } catch (LockedException | DisabledException e) {
-            // User account is locked/disabled (banned)
-            throw new UserisBannedException(e.getMessage());
-        } catch (BadCredentialsException e) {
+        // Unknown users are checked against a dummy hash so both cases take as long
+        boolean matches = passwordHashingService.matches(loginRequest.getPassword(),
+                user != null ? user.getPassword() : null);
+        if (user == null || !matches) {
+            loginAttemptCache.recordFailure(identifier);
             throw new InvalidCredentialsException("Invalid username/email or password");
-        } catch (AuthenticationException e) {
-            throw new InvalidCredentialsException("Authentication failed. Please check your credentials");
+        }
+        loginAttemptCache.recordSuccess(identifier);
+
+        // The configured BCrypt cost changed since this hash was made
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            long userId = user.getId();
+            passwordHashingService.rehashLater(loginRequest.getPassword(),
+                    hash -> userRespository.updatePassword(userId, hash));
+        }
+        return user;
+    }
+
+    // Exchange a refresh token for its user; the caller issues a new access and refresh token pair
+    public User refresh(String refreshToken) {
+        Long userId = refreshTokenService.consume(refreshToken);
+        User user = userRespository.findById(userId)
+                .orElseThrow(() -> new InvalidCredentialsException("Invalid refresh token. Please log in again."));
+
+        checkNotBanned(user);
+        return user;
+    }
+
+    // End this session: the access token is revoked until it expires and the refresh token is deleted
+    public void logout(AuthenticatedUser principal, String refreshToken) {
+        if (principal != null) {
+            tokenRevocationList.revoke(principal.getTokenId(), principal.getExpiresAt());
+        }
+        refreshTokenService.revoke(refreshToken);
+    }
+
+    // Read from the row just loaded rather than BanRegistry: a ban made on another instance applies at once
+    private void checkNotBanned(User user) {
+        if (user.isActiveBan()) {
+            String banMessage = BanMessageFormatter.formatBanMessage(user.getBannedUntil(), user.getBanReason());
+            throw new UserisBannedException(banMessage);
         }
     }
 }
@@ -1,20 +1,24 @@
 package blog.services;
 
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import blog.dto.request.CreateCommentRequestDto;
 import blog.dto.response.CommentResponseDto;
 import blog.dto.response.PagedCommentResponseDto;
 import blog.entity.Comment;
 import blog.entity.Post;
-import blog.entity.User;
 import blog.exceptions.ResourceNotFoundException;
 import blog.repositories.CommentRepository;
 import blog.repositories.PostRepository;
+import blog.repositories.UserRepository;
+import blog.util.CursorUtils;
 import blog.util.ValidationUtils;
 
 @Service
@@ -22,21 +26,26 @@ public class CommentService {
 
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
+    private final UserRepository userRepository;
 
-    public CommentService(CommentRepository commentRepository, PostRepository postRepository) {
+    public CommentService(CommentRepository commentRepository, PostRepository postRepository,
+            UserRepository userRepository) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
+        this.userRepository = userRepository;
     }
 
-    public CommentResponseDto createComment(Long postId, CreateCommentRequestDto createDto, User currentUser) {
+    @Transactional
+    public CommentResponseDto createComment(Long postId, CreateCommentRequestDto createDto, Long currentUserId) {
         Post post = ValidationUtils.validatePostExists(postId, postRepository);
 
         Comment comment = new Comment();
         comment.setContent(createDto.getContent());
-        comment.setUser(currentUser);
+        comment.setUser(userRepository.getReferenceById(currentUserId));
         comment.setPost(post);
 
         Comment savedComment = commentRepository.save(comment);
+        postRepository.addToCommentsCount(postId, 1);
         return CommentResponseDto.fromEntity(savedComment);
     }
 
@@ -51,6 +60,7 @@ public class CommentService {
         return CommentResponseDto.fromEntity(updatedComment);
     }
 
+    @Transactional
     public void deleteComment(Long commentId, Long currentUserId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Comment not found with id: " + commentId));
@@ -58,6 +68,7 @@ public class CommentService {
         ValidationUtils.validateOwnership(comment.getUser().getId(), currentUserId, "comment");
 
         commentRepository.delete(comment);
+        postRepository.addToCommentsCount(comment.getPost().getId(), -1);
     }
 
     public PagedCommentResponseDto getCommentsByPostId(Long postId, int page, int size) {
@@ -67,4 +78,15 @@ public class CommentService {
         Page<Comment> commentPage = commentRepository.findByPostId(postId, pageable);
         return PagedCommentResponseDto.fromPage(commentPage);
     }
+
+    // Keyset mode: seeks on (createdAt, id) and skips the count query
+    public PagedCommentResponseDto getCommentsByPostIdByCursor(Long postId, String cursor, int size) {
+        ValidationUtils.validatePostExists(postId, postRepository);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        List<Comment> comments = commentRepository.findByPostIdAfter(postId, position.getCreatedAt(),
+                position.getId(), PageRequest.of(0, size + 1));
+        String nextCursor = CursorUtils.trimAndEncode(comments, size, Comment::getCreatedAt, Comment::getId);
+        return PagedCommentResponseDto.fromSlice(comments, nextCursor);
+    }
 }
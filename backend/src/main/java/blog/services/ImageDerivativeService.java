@@ -0,0 +1,296 @@
+package blog.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import blog.entity.Media;
+import blog.entity.User;
+import blog.repositories.MediaRepository;
+import blog.repositories.UserRepository;
+import blog.storage.MediaStore;
+import blog.util.FileStorageUtils;
+import blog.util.ImageVariantUtils;
+
+// Makes the resized JPEG copies of uploaded images on the imageDerivativeExecutor: thumb, feed and full for
+// post images, square small/medium/large avatars for profile images. Feeds and comment lists load these instead
+// of originals of up to 50MB. Until an image has its variants, clients keep using the original URL.
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+    private static final int BACKFILL_BATCH_SIZE = 100;
+
+    private final MediaRepository mediaRepository;
+    private final UserRepository userRepository;
+    private final MediaStore mediaStore;
+    private final ThreadPoolTaskExecutor imageDerivativeExecutor;
+    private final float quality;
+
+    public ImageDerivativeService(MediaRepository mediaRepository, UserRepository userRepository,
+            MediaStore mediaStore, ThreadPoolTaskExecutor imageDerivativeExecutor,
+            @Value("${media.derivatives.quality:0.8}") float quality) {
+        this.mediaRepository = mediaRepository;
+        this.userRepository = userRepository;
+        this.mediaStore = mediaStore;
+        this.imageDerivativeExecutor = imageDerivativeExecutor;
+        this.quality = quality;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostMediaStored(PostMediaStoredEvent event) {
+        for (String url : event.getImageUrls()) {
+            submit(() -> generatePostVariants(url));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfileImageStored(ProfileImageStoredEvent event) {
+        submit(() -> generateAvatarVariants(event.getUserId(), event.getUrl()));
+    }
+
+    // Images uploaded before this existed, or dropped from a full queue, are done in one background pass
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        submit(this::generateMissing);
+    }
+
+    public void deletePostVariants(String url) {
+        deleteVariants(url, ImageVariantUtils.POST_DIR, ImageVariantUtils.POST_VARIANTS);
+    }
+
+    public void deleteAvatarVariants(String url) {
+        deleteVariants(url, ImageVariantUtils.AVATAR_DIR, ImageVariantUtils.AVATAR_VARIANTS);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            imageDerivativeExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The image keeps NULL variants: the backfill at the next startup makes them
+            log.warn("Image derivative queue full, variants left for the next backfill");
+        }
+    }
+
+    private void generateMissing() {
+        long afterId = 0;
+        List<Media> media;
+        do {
+            media = mediaRepository.findImagesWithoutVariants(afterId, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            for (Media image : media) {
+                generatePostVariants(image.getUrl());
+                afterId = image.getId();
+            }
+        } while (media.size() == BACKFILL_BATCH_SIZE);
+
+        afterId = 0;
+        List<User> users;
+        do {
+            users = userRepository.findWithoutAvatarVariants(afterId, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            for (User user : users) {
+                generateAvatarVariants(user.getId(), user.getProfileImgUrl());
+                afterId = user.getId();
+            }
+        } while (users.size() == BACKFILL_BATCH_SIZE);
+    }
+
+    private void generatePostVariants(String url) {
+        String variants = render("posts", url, ImageVariantUtils.POST_DIR, ImageVariantUtils.POST_VARIANTS, false);
+        if (variants == null) {
+            return;
+        }
+        // Every media with this file was deleted meanwhile
+        if (mediaRepository.updateVariants(url, variants) == 0) {
+            deletePostVariants(url);
+        }
+    }
+
+    private void generateAvatarVariants(Long userId, String url) {
+        String variants = render("", url, ImageVariantUtils.AVATAR_DIR, ImageVariantUtils.AVATAR_VARIANTS, true);
+        if (variants == null) {
+            return;
+        }
+        // The user changed or removed their picture meanwhile
+        if (userRepository.updateAvatarVariants(userId, url, variants) == 0) {
+            deleteAvatarVariants(url);
+        }
+    }
+
+    // Stores every variant of the image at url (in sourceDir of the store) into dir and returns their names,
+    // "" when the image cannot be resized (unknown format, animated GIF, undecodable data), null when it could
+    // not be read or stored: its variants then stay missing and the next backfill tries again
+    private String render(String sourceDir, String url, String dir, Map<String, Integer> variants, boolean square) {
+        List<String> targets = new ArrayList<>();
+        for (String variant : variants.keySet()) {
+            String name = ImageVariantUtils.derivativeName(url, variant);
+            targets.add(FileStorageUtils.storageKey(dir, FileStorageUtils.shardedPath(name)));
+        }
+        // Same content uploaded again: its variants are already there
+        if (targets.stream().allMatch(this::exists)) {
+            return String.join(",", variants.keySet());
+        }
+
+        // A local file is read in place, other stores are read as a stream
+        String source;
+        try {
+            source = mediaStore.locate(sourceDir, fileName(url));
+        } catch (IOException e) {
+            return null;
+        }
+        Path localSource = mediaStore.localPath(source);
+        try (InputStream remoteSource = localSource == null ? mediaStore.get(source) : null;
+                ImageInputStream in = ImageIO.createImageInputStream(
+                        localSource != null ? localSource.toFile() : remoteSource)) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                return "";
+            }
+            ImageReader reader = readers.next();
+            try {
+                // Animated GIFs would lose their animation, they keep being served as uploaded
+                if ("gif".equalsIgnoreCase(reader.getFormatName())) {
+                    return "";
+                }
+                reader.setInput(in, true, true);
+                BufferedImage image = decode(reader, Collections.max(variants.values()), square);
+
+                int i = 0;
+                for (int size : variants.values()) {
+                    writeJpeg(resize(image, size, square), targets.get(i++));
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return isUndecodable(e) ? "" : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return String.join(",", variants.keySet());
+    }
+
+    // Image readers report bad data with an IIOException of their own, and wrap the errors of the stream
+    private static boolean isUndecodable(IOException e) {
+        return e instanceof IIOException && !(e.getCause() instanceof IOException);
+    }
+
+    // Decodes only every n-th pixel when the image is much larger than needed: a full-size bitmap of a large
+    // photo takes hundreds of MB, while twice the largest variant is enough for a clean downscale
+    private BufferedImage decode(ImageReader reader, int largestSize, boolean square) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int edge = square ? Math.min(width, height) : Math.max(width, height);
+        int step = Math.max(1, edge / (largestSize * 2));
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(step, step, 0, 0);
+        BufferedImage image = reader.read(0, param);
+
+        if (square) {
+            int side = Math.min(image.getWidth(), image.getHeight());
+            image = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        }
+        return image;
+    }
+
+    // Fits the image in a size x size box, halving first so bilinear filtering stays sharp on large reductions
+    private BufferedImage resize(BufferedImage image, int size, boolean square) {
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = square ? Math.min(size, image.getWidth()) : Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = square ? width : Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, width, height);
+    }
+
+    // JPEG has no transparency: transparent pixels become white
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Encoded in memory (variants are small) and stored in one piece, so a variant URL never serves a
+    // half-written file
+    private void writeJpeg(BufferedImage image, String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        mediaStore.put(key, new ByteArrayInputStream(bytes.toByteArray()), bytes.size(), "image/jpeg");
+    }
+
+    private boolean exists(String key) {
+        try {
+            return mediaStore.stat(key) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteVariants(String url, String dir, Map<String, Integer> variants) {
+        if (url == null) {
+            return;
+        }
+        for (String variant : variants.keySet()) {
+            mediaStore.deleteFile(dir, ImageVariantUtils.derivativeName(url, variant));
+        }
+    }
+
+    private static String fileName(String url) {
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,256 @@
+package blog.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import blog.dto.response.LikeResponseDto;
+import blog.exceptions.ResourceNotFoundException;
+import blog.repositories.LikeBatchRepository;
+import blog.repositories.LikeRepository;
+import blog.repositories.PostRepository;
+
+// Optional write-behind buffer for like toggles (likes.buffer.enabled).
+// Toggles are recorded in memory, striped by post id, and written every few milliseconds with multi-row
+// inserts/deletes plus one counter update per post, so a viral post no longer serializes every like on its
+// counter row. A user has at most one pending state per post, which keeps the (user_id, post_id) uniqueness.
+// Reads merge the pending states so users see their own toggle immediately.
+// A batch that fails to be written goes back to the pending toggles and is retried with the next flush.
+// Pending toggles are lost if the process stops before a flush; the counter reconciler repairs the counts.
+@Service
+public class LikeBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeBuffer.class);
+
+    private final LikeRepository likeRepository;
+    private final PostRepository postRepository;
+    private final LikeBatchRepository likeBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Stripe[] stripes;
+
+    public LikeBuffer(LikeRepository likeRepository, PostRepository postRepository,
+            LikeBatchRepository likeBatchRepository, TransactionTemplate transactionTemplate,
+            @Value("${likes.buffer.enabled:false}") boolean enabled,
+            @Value("${likes.buffer.stripes:64}") int stripeCount) {
+        this.likeRepository = likeRepository;
+        this.postRepository = postRepository;
+        this.likeBatchRepository = likeBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // A user's toggle waiting to be written: the state before the buffer and the state asked for
+    private static final class PendingLike {
+        private final boolean persisted;
+        private boolean liked;
+
+        private PendingLike(boolean persisted, boolean liked) {
+            this.persisted = persisted;
+            this.liked = liked;
+        }
+    }
+
+    // Pending toggles of the posts hashed to this stripe, the ones currently being written, and per post the
+    // change of the like count they make together (kept up to date, reads do not scan the toggles)
+    private static final class Stripe {
+        private Map<Long, Map<Long, PendingLike>> pending = new HashMap<>();
+        private Map<Long, Map<Long, PendingLike>> flushing = new HashMap<>();
+        private final Map<Long, Long> deltas = new HashMap<>();
+
+        private PendingLike find(Long postId, Long userId) {
+            PendingLike like = pending.getOrDefault(postId, Map.of()).get(userId);
+            return like != null ? like : flushing.getOrDefault(postId, Map.of()).get(userId);
+        }
+
+        private long countDelta(Long postId) {
+            return deltas.getOrDefault(postId, 0L);
+        }
+
+        private void addDelta(Long postId, long delta) {
+            if (deltas.merge(postId, delta, Long::sum) == 0) {
+                deltas.remove(postId);
+            }
+        }
+
+        // Counts of a written batch are in posts.likes_count now
+        private void written(Map<Long, Map<Long, PendingLike>> batch) {
+            batch.forEach((postId, likes) -> likes.values().forEach(like -> {
+                if (like.liked != like.persisted) {
+                    addDelta(postId, like.liked ? -1 : 1);
+                }
+            }));
+        }
+
+        // A failed batch is pending again, combined with the toggles made while it was being written.
+        // The count deltas stay as they are: the combined toggle changes the count as much as both did.
+        private void restore(Map<Long, Map<Long, PendingLike>> batch) {
+            batch.forEach((postId, likes) -> {
+                Map<Long, PendingLike> postLikes = pending.computeIfAbsent(postId, id -> new HashMap<>());
+                likes.forEach((userId, like) -> {
+                    PendingLike newer = postLikes.get(userId);
+                    if (newer == null) {
+                        postLikes.put(userId, like);
+                    } else if (newer.liked == like.persisted) {
+                        postLikes.remove(userId);
+                    } else {
+                        postLikes.put(userId, new PendingLike(like.persisted, newer.liked));
+                    }
+                });
+                if (postLikes.isEmpty()) {
+                    pending.remove(postId);
+                }
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LikeResponseDto toggle(Long postId, Long userId) {
+        Stripe stripe = stripeFor(postId);
+
+        boolean buffered;
+        synchronized (stripe) {
+            buffered = stripe.find(postId, userId) != null;
+        }
+        Boolean persisted = null;
+        if (!buffered) {
+            // Not buffered: read the current state outside the stripe lock
+            persisted = likeRepository.findLikeState(userId, postId);
+            if (persisted == null) {
+                throw new ResourceNotFoundException("Post not found");
+            }
+        }
+
+        boolean liked;
+        long delta;
+        synchronized (stripe) {
+            PendingLike known = stripe.find(postId, userId);
+            if (known == null && persisted == null) {
+                // The buffered state was flushed in the meantime: the database is up to date again
+                return toggle(postId, userId);
+            }
+            boolean current = known != null ? known.liked : persisted;
+            liked = !current;
+
+            Map<Long, PendingLike> postLikes = stripe.pending.computeIfAbsent(postId, id -> new HashMap<>());
+            PendingLike pendingLike = postLikes.get(userId);
+            if (pendingLike == null) {
+                postLikes.put(userId, new PendingLike(current, liked));
+            } else if (pendingLike.persisted == liked) {
+                // Toggled back before the flush: nothing left to write
+                postLikes.remove(userId);
+                if (postLikes.isEmpty()) {
+                    stripe.pending.remove(postId);
+                }
+            } else {
+                pendingLike.liked = liked;
+            }
+            // Every toggle moves the count by one, whatever was pending before
+            stripe.addDelta(postId, liked ? 1 : -1);
+            delta = stripe.countDelta(postId);
+        }
+
+        Long likesCount = postRepository.findLikesCount(postId);
+        return new LikeResponseDto(liked, (likesCount != null ? likesCount : 0) + delta);
+    }
+
+    // Change of the like count not yet written to posts.likes_count
+    public long pendingCountDelta(Long postId) {
+        if (!enabled) {
+            return 0;
+        }
+        Stripe stripe = stripeFor(postId);
+        synchronized (stripe) {
+            return stripe.countDelta(postId);
+        }
+    }
+
+    // The user's buffered like state for the post, or null when nothing is pending
+    public Boolean pendingState(Long postId, Long userId) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        Stripe stripe = stripeFor(postId);
+        synchronized (stripe) {
+            PendingLike like = stripe.find(postId, userId);
+            return like != null ? like.liked : null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${likes.buffer.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        for (Stripe stripe : stripes) {
+            Map<Long, Map<Long, PendingLike>> batch;
+            synchronized (stripe) {
+                if (stripe.pending.isEmpty()) {
+                    continue;
+                }
+                batch = stripe.pending;
+                stripe.flushing = batch;
+                stripe.pending = new HashMap<>();
+            }
+            boolean written = false;
+            try {
+                write(batch);
+                written = true;
+            } catch (RuntimeException e) {
+                // Usually a transient database error: the other stripes are still written
+                log.warn("Failed to write {} buffered like toggles, retrying with the next flush", size(batch), e);
+            } finally {
+                synchronized (stripe) {
+                    stripe.flushing = new HashMap<>();
+                    if (written) {
+                        stripe.written(batch);
+                    } else {
+                        stripe.restore(batch);
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(Map<Long, Map<Long, PendingLike>> batch) {
+        List<long[]> inserts = new ArrayList<>();
+        List<long[]> deletes = new ArrayList<>();
+        batch.forEach((postId, likes) -> likes.forEach((userId, like) -> {
+            if (like.liked != like.persisted) {
+                (like.liked ? inserts : deletes).add(new long[] { userId, postId });
+            }
+        }));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Counters only move by the rows that were really inserted or deleted
+            Map<Long, Long> deltas = new HashMap<>();
+            likeBatchRepository.insertLikes(inserts).forEach(postId -> deltas.merge(postId, 1L, Long::sum));
+            likeBatchRepository.deleteLikes(deletes).forEach(postId -> deltas.merge(postId, -1L, Long::sum));
+            deltas.values().removeIf(delta -> delta == 0);
+            likeBatchRepository.addToLikesCounts(deltas);
+        });
+    }
+
+    private static int size(Map<Long, Map<Long, PendingLike>> batch) {
+        return batch.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private Stripe stripeFor(Long postId) {
+        return stripes[Math.floorMod(postId.hashCode(), stripes.length)];
+    }
+}
@@ -4,9 +4,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import blog.dto.response.LikeResponseDto;
-import blog.entity.Like;
-import blog.entity.Post;
-import blog.entity.User;
+import blog.exceptions.ResourceNotFoundException;
 import blog.repositories.LikeRepository;
 import blog.repositories.PostRepository;
 
@@ -15,38 +13,36 @@ public class LikeService {
 
     private final LikeRepository likeRepository;
     private final PostRepository postRepository;
+    private final LikeBuffer likeBuffer;
 
-    public LikeService(LikeRepository likeRepository, PostRepository postRepository) {
+    public LikeService(LikeRepository likeRepository, PostRepository postRepository, LikeBuffer likeBuffer) {
         this.likeRepository = likeRepository;
         this.postRepository = postRepository;
+        this.likeBuffer = likeBuffer;
     }
 
+    // Delete-or-insert then bump the post counter: a constant number of statements, no count over likes
     @Transactional
-    public LikeResponseDto toggleLike(Long postId, User currentUser) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
-
-        // Check if user already liked this post
-        boolean alreadyLiked = likeRepository.existByUserIdAndPostId(currentUser.getId(), postId);
-
-        if (alreadyLiked) {
-            // Unlike: Find and delete the like
-            Like like = likeRepository.findByUserIdAndPostId(currentUser.getId(), postId);
-            if (like != null) {
-                likeRepository.delete(like);
-            }
+    public LikeResponseDto toggleLike(Long postId, Long currentUserId) {
+        if (likeBuffer.isEnabled()) {
+            return likeBuffer.toggle(postId, currentUserId);
+        }
+
+        boolean isLiked;
+
+        if (likeRepository.deleteByUserIdAndPostId(currentUserId, postId) > 0) {
+            isLiked = false;
+        } else if (likeRepository.insertIfAbsent(currentUserId, postId) > 0) {
+            isLiked = true;
+        } else if (!postRepository.existsById(postId)) {
+            throw new ResourceNotFoundException("Post not found");
         } else {
-            // Like: Create new like
-            Like newLike = new Like();
-            newLike.setUser(currentUser);
-            newLike.setPost(post);
-            likeRepository.save(newLike);
+            // A concurrent request of the same user inserted the like, and counted it
+            return new LikeResponseDto(true, postRepository.findLikesCount(postId));
         }
 
-        // Get updated like count
-        long likesCount = likeRepository.countByPostId(postId);
-        boolean isLiked = !alreadyLiked;
+        postRepository.addToLikesCount(postId, isLiked ? 1 : -1);
 
-        return new LikeResponseDto(isLiked, likesCount);
+        return new LikeResponseDto(isLiked, postRepository.findLikesCount(postId));
     }
 }
@@ -0,0 +1,65 @@
+package blog.services;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Short-lived memory of identifiers whose logins keep failing. Once an identifier reaches the limit inside
+// the window, its attempts are refused before any database lookup or hashing until the window ends.
+@Component
+public class LoginAttemptCache {
+
+    private final int maxFailures;
+    private final long windowMillis;
+    private final ConcurrentHashMap<String, Failures> failures = new ConcurrentHashMap<>();
+
+    public LoginAttemptCache(@Value("${auth.login.max-failures:5}") int maxFailures,
+            @Value("${auth.login.failure-window-seconds:60}") long windowSeconds) {
+        this.maxFailures = maxFailures;
+        this.windowMillis = windowSeconds * 1000;
+    }
+
+    private static final class Failures {
+        private final long since;
+        private final int count;
+
+        private Failures(long since, int count) {
+            this.since = since;
+            this.count = count;
+        }
+    }
+
+    // Seconds until the identifier may try again, 0 when it is not blocked
+    public long blockedForSeconds(String identifier) {
+        Failures entry = failures.get(key(identifier));
+        if (entry == null || entry.count < maxFailures) {
+            return 0;
+        }
+        long remaining = entry.since + windowMillis - System.currentTimeMillis();
+        return remaining > 0 ? (remaining + 999) / 1000 : 0;
+    }
+
+    public void recordFailure(String identifier) {
+        long now = System.currentTimeMillis();
+        failures.compute(key(identifier), (key, entry) -> entry == null || now - entry.since >= windowMillis
+                ? new Failures(now, 1)
+                : new Failures(entry.since, entry.count + 1));
+    }
+
+    public void recordSuccess(String identifier) {
+        failures.remove(key(identifier));
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        failures.values().removeIf(entry -> now - entry.since >= windowMillis);
+    }
+
+    private static String key(String identifier) {
+        return identifier == null ? "" : identifier.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,170 @@
+package blog.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import blog.Config.FileStorageConfig;
+import blog.entity.Media;
+import blog.repositories.MediaBlobRepository;
+import blog.storage.MediaStore;
+import blog.util.FileStorageUtils;
+import blog.util.FileStorageUtils.StoredFile;
+
+// Content-addressed storage of post media: a file is kept once per SHA-256 under
+// posts/<ab>/<cd>/<sha256>.<ext> in the MediaStore and shared by every Media row with that content. Deleting media drops a reference, and the file goes with
+// the last one. Media stored before this (no content hash) keep their own file and are deleted directly.
+// An upload reserves its content (takes a reference) before the transfer, and a file is only deleted under the
+// lock of its content once no reference is left: a file being uploaded again is never deleted under it.
+@Service
+public class MediaBlobService {
+
+    private final MediaBlobRepository mediaBlobRepository;
+    private final FileStorageConfig fileStorageConfig;
+    private final MediaStore mediaStore;
+    private final ImageDerivativeService imageDerivativeService;
+    // Reservations and deletions commit on their own, whatever the caller's transaction does
+    private final TransactionTemplate ownTransaction;
+
+    public MediaBlobService(MediaBlobRepository mediaBlobRepository, FileStorageConfig fileStorageConfig,
+            MediaStore mediaStore, ImageDerivativeService imageDerivativeService,
+            PlatformTransactionManager transactionManager) {
+        this.mediaBlobRepository = mediaBlobRepository;
+        this.fileStorageConfig = fileStorageConfig;
+        this.mediaStore = mediaStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Reserve the content of freshly uploaded files, then hand them to the MediaStore under its key. Called before
+    // the transaction that stores them, so no connection or lock is held while a file travels to a remote store.
+    // Each reservation is a reference, committed before the transfer: store hands it over to the Media row and
+    // discard drops it. A crash in between leaves the reference behind, which keeps a file but never loses one.
+    public void upload(List<StoredFile> files) {
+        List<StoredFile> reserved = new ArrayList<>();
+        try {
+            for (StoredFile file : files) {
+                String fileName = reserve(file);
+                reserved.add(file);
+                transfer(file, fileName);
+            }
+        } catch (RuntimeException e) {
+            discard(reserved);
+            throw e;
+        }
+    }
+
+    // Path of the shared copy of a file reserved by upload, relative to the posts directory. The Media row saved
+    // with it takes over the reservation as its reference.
+    public String store(StoredFile file) {
+        return FileStorageUtils.shardedPath(mediaBlobRepository.findFileName(file.getSha256()));
+    }
+
+    // Drop the reservations of files passed to upload whose transaction failed. A file goes with the last
+    // reference, as in release.
+    public void discard(List<StoredFile> files) {
+        for (StoredFile file : files) {
+            String fileName = ownTransaction.execute(status -> mediaBlobRepository.release(file.getSha256()));
+            if (fileName != null) {
+                deleteUnreferenced(fileName, file.getSha256());
+            }
+        }
+    }
+
+    // Drop the references of these media. Files are only deleted once the transaction commits, so a rollback
+    // leaves every post its file; the file of a last reference is kept when the same content was uploaded again
+    // in the meantime.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Collection<Media> mediaList) {
+        for (Media media : mediaList) {
+            if (media.getContentHash() == null) {
+                deleteAfterCommit(media.getUrl(), null);
+                continue;
+            }
+            String fileName = mediaBlobRepository.release(media.getContentHash());
+            if (fileName != null) {
+                deleteAfterCommit(fileName, media.getContentHash());
+            }
+        }
+    }
+
+    // Uploads are staged here before being handed to the store
+    private Path postsDir() {
+        return Paths.get(fileStorageConfig.getStagingDir(), "posts");
+    }
+
+    // sha256 is null for media stored before content addressing, whose file is their own
+    private void deleteAfterCommit(String fileName, String sha256) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (sha256 == null) {
+                    deleteFiles(fileName);
+                } else {
+                    deleteUnreferenced(fileName, sha256);
+                }
+            }
+        });
+    }
+
+    // Takes a reference on the content, creating its blob row if needed, and returns the name of the shared file.
+    // The content's lock is held until the reference is committed: a deletion already under way finishes first.
+    private String reserve(StoredFile file) {
+        return ownTransaction.execute(status -> {
+            mediaBlobRepository.lock(file.getSha256());
+            return mediaBlobRepository.acquire(file.getSha256(), contentFileName(file), file.getSize(),
+                    file.getContentType()).getFileName();
+        });
+    }
+
+    // fileName is the shared file's: the same content uploaded before with another extension keeps that copy
+    private void transfer(StoredFile file, String fileName) {
+        Path uploaded = postsDir().resolve(file.getFileName());
+        String key = "posts/" + FileStorageUtils.shardedPath(fileName);
+        try {
+            // The reservation keeps an object already under this key, and it can only hold the same content
+            if (mediaStore.stat(key) == null) {
+                mediaStore.putFile(key, uploaded, file.getContentType());
+            } else {
+                Files.deleteIfExists(uploaded);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store media " + file.getFileName(), e);
+        }
+    }
+
+    // Deletes the file of a content whose last reference was dropped, unless it was reserved again since. Under
+    // the content's lock, which reserve takes too: an upload reserving it later waits and finds the file gone.
+    private void deleteUnreferenced(String fileName, String sha256) {
+        ownTransaction.executeWithoutResult(status -> {
+            mediaBlobRepository.lock(sha256);
+            if (!mediaBlobRepository.exists(sha256)) {
+                deleteFiles(fileName);
+            }
+        });
+    }
+
+    private void deleteFiles(String fileName) {
+        mediaStore.deleteFile("posts", fileName);
+        imageDerivativeService.deletePostVariants(fileName);
+    }
+
+    private static String contentFileName(StoredFile file) {
+        return file.getSha256() + FileStorageUtils.extensionOf(file.getFileName(), "");
+    }
+}
@@ -2,6 +2,7 @@ package blog.services;
 
 import java.time.LocalDateTime;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import blog.dto.request.BanUserRequestDto;
@@ -10,9 +11,13 @@ import blog.entity.Post;
 import blog.entity.User;
 import blog.exceptions.ResourceNotFoundException;
 import blog.exceptions.UnauthorizedException;
+import blog.repositories.MediaRepository;
 import blog.repositories.PostRepository;
 import blog.repositories.ReportRepository;
 import blog.repositories.UserRepository;
+import blog.security.AuthenticatedUser;
+import blog.security.BanRegistry;
+import blog.security.UserStateCache;
 import jakarta.transaction.Transactional;
 
 @Service
@@ -22,12 +27,30 @@ public class ModerationService {
     private final ReportRepository reportRepository;
     private final PostRepository postRepository;
     private final UserService userService;
-
-    public ModerationService(UserRepository userRepository, ReportRepository reportRepository, PostRepository postRepository, UserService userService) {
+    private final TimelineService timelineService;
+    private final UserStateCache userStateCache;
+    private final RefreshTokenService refreshTokenService;
+    private final BanRegistry banRegistry;
+    private final MediaRepository mediaRepository;
+    private final MediaBlobService mediaBlobService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ModerationService(UserRepository userRepository, ReportRepository reportRepository, PostRepository postRepository,
+            UserService userService, TimelineService timelineService, UserStateCache userStateCache,
+            RefreshTokenService refreshTokenService, BanRegistry banRegistry,
+            MediaRepository mediaRepository, MediaBlobService mediaBlobService,
+            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.reportRepository = reportRepository;
         this.postRepository = postRepository;
         this.userService = userService;
+        this.timelineService = timelineService;
+        this.userStateCache = userStateCache;
+        this.refreshTokenService = refreshTokenService;
+        this.banRegistry = banRegistry;
+        this.mediaRepository = mediaRepository;
+        this.mediaBlobService = mediaBlobService;
+        this.eventPublisher = eventPublisher;
     }
 
     //-----------------------------User Moderation--------------------
@@ -35,7 +58,7 @@ public class ModerationService {
     // Ban a user
     @Transactional
     public void banUser(Long userId, BanUserRequestDto requestDto) {
-        User admin = userService.getCurrentUserEntity();
+        AuthenticatedUser admin = userService.getCurrentUser();
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
@@ -44,7 +67,7 @@ public class ModerationService {
             throw new UnauthorizedException("Cannot ban admin users");
         }
 
-        if (user.getIsBanned()) {
+        if (user.isActiveBan()) {
             throw new UnauthorizedException("This user is already banned");
         }
 
@@ -65,6 +88,11 @@ public class ModerationService {
         }
 
         userRepository.save(user);
+        banRegistry.ban(userId, user.getBannedUntil(), user.getBanReason());
+        // Sessions opened before the ban stay invalid after it ends
+        userRepository.incrementTokenVersion(userId);
+        refreshTokenService.revokeAllForUser(userId);
+        userStateCache.invalidate(userId);
     }
 
     // Unban a user
@@ -75,12 +103,13 @@ public class ModerationService {
 
         user.setIsBanned(false);
         userRepository.save(user);
+        banRegistry.lift(userId);
     }
 
     // Delete a user permanently
     @Transactional
     public void deleteUser(Long userId) {
-        User admin = userService.getCurrentUserEntity();
+        AuthenticatedUser admin = userService.getCurrentUser();
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
@@ -102,7 +131,15 @@ public class ModerationService {
                     reportRepository.save(report);
                 });
 
+        timelineService.removeUser(userId);
+        banRegistry.lift(userId);
+        refreshTokenService.revokeAllForUser(userId);
+        postRepository.discountLikesOfUser(userId);
+        postRepository.discountCommentsOfUser(userId);
+        // Their posts go with them, and so do the references of their media
+        mediaBlobService.release(mediaRepository.findByPostCreatorId(userId));
         userRepository.delete(user);
+        userStateCache.invalidate(userId);
     }
 
     // Update user role
@@ -120,6 +157,10 @@ public class ModerationService {
 
         user.setRole(requestDto.getRole());
         userRepository.save(user);
+        // Tokens carry the role: the old ones must not keep the previous one
+        userRepository.incrementTokenVersion(userId);
+        refreshTokenService.revokeAllForUser(userId);
+        userStateCache.invalidate(userId);
     }
 
     //--------------------Post Moderation-----------------------------
@@ -134,6 +175,7 @@ public class ModerationService {
         System.out.println("Post found. Current isHidden: " + post.isHidden());
         post.setIsHidden(true);
         Post savedPost = postRepository.save(post);
+        timelineService.removePost(postId);
         System.out.println("Post saved. New isHidden: " + savedPost.isHidden());
     }
 
@@ -147,6 +189,8 @@ public class ModerationService {
         System.out.println("Post found. Current isHidden: " + post.isHidden());
         post.setIsHidden(false);
         Post savedPost = postRepository.save(post);
+        timelineService.fanOutPost(savedPost);
+        eventPublisher.publishEvent(new PostUnhiddenEvent(postId, savedPost.getCreator().getId()));
         System.out.println("Post saved. New isHidden: " + savedPost.isHidden());
     }
 
@@ -156,6 +200,8 @@ public class ModerationService {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new ResourceNotFoundException("Post not found with"));
 
+        timelineService.removePost(postId);
+        mediaBlobService.release(post.getMediaList());
         postRepository.delete(post);
     }
 }
@@ -0,0 +1,108 @@
+package blog.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import blog.entity.NotificationType;
+import blog.entity.Post;
+import blog.repositories.PostRepository;
+import blog.repositories.SubscriptionRepository;
+import blog.util.NotificationMessageFormatter;
+
+// Sends the "new post" notification to every follower outside the request transaction:
+// followers are read by id ranges and handed to the notification aggregation stage, one chunk at a time.
+// The post stays marked notifications_pending until every chunk is delivered: a task rejected by a full queue
+// or lost in a restart is run again by retryPending (after a restart, chunks already delivered may be
+// notified twice).
+@Service
+public class NotificationFanOutService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationFanOutService.class);
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final PostRepository postRepository;
+    private final NotificationService notificationService;
+    private final ThreadPoolTaskExecutor notificationExecutor;
+    private final int chunkSize;
+    private final long retryIntervalMillis;
+
+    public NotificationFanOutService(SubscriptionRepository subscriptionRepository, PostRepository postRepository,
+            NotificationService notificationService, ThreadPoolTaskExecutor notificationExecutor,
+            @Value("${notifications.fanout.chunk-size:1000}") int chunkSize,
+            @Value("${notifications.fanout.retry-interval-ms:60000}") long retryIntervalMillis) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.postRepository = postRepository;
+        this.notificationService = notificationService;
+        this.notificationExecutor = notificationExecutor;
+        this.chunkSize = chunkSize;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    // A full queue leaves the post pending for retryPending instead of running the fan-out on this thread
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        try {
+            notificationExecutor.execute(() -> notifyFollowers(event));
+        } catch (RejectedExecutionException e) {
+            log.warn("Notification queue full, fan-out of post {} left pending for retry", event.getPostId());
+        }
+    }
+
+    // A post that fails stays pending for the next run
+    @Scheduled(fixedDelayString = "${notifications.fanout.retry-interval-ms:60000}")
+    public void retryPending() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(retryIntervalMillis * 1_000_000);
+        long afterId = 0;
+        List<Post> posts;
+        do {
+            posts = postRepository.findNotificationsPendingBefore(before, afterId,
+                    PageRequest.of(0, RETRY_BATCH_SIZE));
+            for (Post post : posts) {
+                try {
+                    notifyFollowers(new PostCreatedEvent(post.getId(), post.getCreator().getId(),
+                            post.getCreator().getUsername()));
+                } catch (RuntimeException e) {
+                    log.warn("Notification fan-out of post {} failed, it stays pending", post.getId(), e);
+                }
+                afterId = post.getId();
+            }
+        } while (posts.size() == RETRY_BATCH_SIZE);
+    }
+
+    private void notifyFollowers(PostCreatedEvent event) {
+        String message = NotificationMessageFormatter.formatMessage(NotificationType.NEW_POST,
+                event.getCreatorUsername(), 1);
+        long afterId = 0;
+
+        while (true) {
+            List<Long> followerIds = subscriptionRepository.findFollowerIdsAfter(event.getCreatorId(), afterId,
+                    PageRequest.of(0, chunkSize));
+            if (followerIds.isEmpty()) {
+                break;
+            }
+
+            // Rows and unread counters of a chunk are committed together
+            notificationService.deliverPostNotifications(event.getCreatorId(), followerIds, event.getPostId(),
+                    NotificationType.NEW_POST, message);
+            notificationService.publishPostNotifications(event.getPostId(), NotificationType.NEW_POST, followerIds);
+
+            if (followerIds.size() < chunkSize) {
+                break;
+            }
+            afterId = followerIds.get(followerIds.size() - 1);
+        }
+        postRepository.clearNotificationsPending(event.getPostId());
+    }
+}
@@ -0,0 +1,37 @@
+package blog.services;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import blog.repositories.NotificationRepository;
+
+// Deletes read notifications older than the retention period, one small batch per transaction so the
+// table is never locked for long. Unread notifications are always kept, so unread counters are unaffected.
+@Service
+public class NotificationRetentionJob {
+
+    private final NotificationRepository notificationRepository;
+    private final int retentionDays;
+    private final int batchSize;
+
+    public NotificationRetentionJob(NotificationRepository notificationRepository,
+            @Value("${notifications.retention.days:90}") int retentionDays,
+            @Value("${notifications.retention.batch-size:5000}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${notifications.retention.cron:0 30 3 * * *}")
+    public void purgeReadNotifications() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+
+        int deleted;
+        do {
+            deleted = notificationRepository.deleteReadOlderThan(cutoff, batchSize);
+        } while (deleted == batchSize);
+    }
+}
@@ -1,29 +1,61 @@
 package blog.services;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.transaction.annotation.Transactional;
 
 import blog.dto.response.NotificationResponseDto;
+import blog.dto.response.PageResponse;
 import blog.entity.Notification;
 import blog.entity.NotificationType;
-import blog.entity.Post;
-import blog.entity.Subscription;
 import blog.entity.User;
 import blog.exceptions.UserNotFoundException;
+import blog.repositories.NotificationBatchRepository;
 import blog.repositories.NotificationRepository;
 import blog.repositories.UserRepository;
+import blog.util.CursorUtils;
 
 @Service
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository) {
+    private final NotificationStreamService notificationStreamService;
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final long coalesceWindowMinutes;
+
+    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository,
+            NotificationStreamService notificationStreamService,
+            NotificationBatchRepository notificationBatchRepository,
+            @Value("${notifications.coalesce.window-minutes:60}") long coalesceWindowMinutes) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
+        this.notificationStreamService = notificationStreamService;
+        this.notificationBatchRepository = notificationBatchRepository;
+        this.coalesceWindowMinutes = coalesceWindowMinutes;
+    }
+
+    // Fill or repair the unread counters from the notifications table
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcileUnreadCounts() {
+        userRepository.reconcileUnreadNotificationsCounts();
+    }
+
+    // Open the push stream of a user, starting with the current unread count
+    public SseEmitter openStream(Long userId) {
+        SseEmitter emitter = notificationStreamService.open(userId);
+        notificationStreamService.send(userId, "unread-count", getUnreadCount(userId));
+        return emitter;
     }
 
     @Transactional
@@ -35,33 +67,86 @@ public class NotificationService {
         User recipient = userRepository.findById(recipientId)
                 .orElseThrow(() -> new UserNotFoundException("Recipient not found"));
 
-        Notification notification = new Notification();
-        notification.setType(type);
-        notification.setMessage(message);
-        notification.setRelatedPostId(relatedPostId);
-        notification.setCreator(creator);
-        notification.setRecipient(recipient);
-        Notification savedNotification = notificationRepository.save(notification);
+        // Merged into an open group: that exact row is returned, it is already counted as unread
+        Long groupId = coalesce(creatorId, List.of(recipientId), relatedPostId, type).get(recipientId);
+        Notification savedNotification = groupId != null
+                ? notificationRepository.findById(groupId).orElse(null)
+                : null;
+        if (savedNotification == null) {
+            Notification notification = new Notification();
+            notification.setType(type);
+            notification.setMessage(message);
+            notification.setRelatedPostId(relatedPostId);
+            notification.setCreator(creator);
+            notification.setRecipient(recipient);
+            savedNotification = notificationRepository.save(notification);
+            userRepository.addToUnreadNotificationsCount(recipientId, 1);
+        }
+        NotificationResponseDto response = NotificationResponseDto.fromEntity(savedNotification);
 
-        return NotificationResponseDto.fromEntity(savedNotification);
+        if (notificationStreamService.isConnected(recipientId)) {
+            notificationStreamService.send(recipientId, "notification", response);
+            notificationStreamService.send(recipientId, "unread-count", getUnreadCount(recipientId));
+        }
+        return response;
     }
 
-    public List<NotificationResponseDto> getNotifications(Long userId, boolean unreadOnly) {
-        List<Notification> notifications;
+    // Aggregation stage of the bulk path: recipients with an open group of this type get it updated in place,
+    // only the others get a new row and a higher unread counter
+    @Transactional
+    public void deliverPostNotifications(Long creatorId, List<Long> recipientIds, Long postId,
+            NotificationType type, String message) {
+        List<Long> fresh = new ArrayList<>(recipientIds);
+        fresh.removeAll(coalesce(creatorId, recipientIds, postId, type).keySet());
+        if (fresh.isEmpty()) {
+            return;
+        }
+        notificationBatchRepository.insertForRecipients(creatorId, fresh, postId, type, message);
+        userRepository.incrementUnreadNotificationsCounts(fresh);
+    }
 
-        if (unreadOnly) {
-            notifications = notificationRepository.findByRecipientIdAndIsReadFalseOrderByCreatedAtDesc(userId);
-        } else {
-            notifications = notificationRepository.findByRecipientIdOrderByCreatedAtDesc(userId);
+    // Recipients whose unread group of the same type, opened within the window, absorbed the event
+    private Map<Long, Long> coalesce(Long creatorId, List<Long> recipientIds, Long postId, NotificationType type) {
+        if (coalesceWindowMinutes <= 0) {
+            return Map.of();
         }
+        LocalDateTime windowStart = LocalDateTime.now().minusMinutes(coalesceWindowMinutes);
+        return notificationBatchRepository.coalesceForRecipients(creatorId, recipientIds, postId, type,
+                windowStart);
+    }
 
-        return notifications.stream()
-                .map(NotificationResponseDto::fromEntity)
+    // Push notifications created in bulk for a post to the recipients that have a stream open
+    public void publishPostNotifications(Long postId, NotificationType type, List<Long> recipientIds) {
+        List<Long> connected = recipientIds.stream()
+                .filter(notificationStreamService::isConnected)
                 .toList();
+        if (connected.isEmpty()) {
+            return;
+        }
+
+        for (Notification notification : notificationRepository.findByPostEventAndRecipients(postId, type, connected)) {
+            Long recipientId = notification.getRecipient().getId();
+            notificationStreamService.send(recipientId, "notification", NotificationResponseDto.fromEntity(notification));
+            notificationStreamService.send(recipientId, "unread-count", getUnreadCount(recipientId));
+        }
     }
 
+    // Keyset page of notifications, an empty cursor starts from the newest
+    public PageResponse<NotificationResponseDto> getNotifications(Long userId, boolean unreadOnly, String cursor,
+            int size) {
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        List<NotificationResponseDto> notifications = notificationRepository.findPageAfter(userId, unreadOnly,
+                position.getCreatedAt(), position.getId(), PageRequest.of(0, size + 1));
+
+        String nextCursor = CursorUtils.trimAndEncode(notifications, size, NotificationResponseDto::getCreatedAt,
+                NotificationResponseDto::getId);
+        return new PageResponse<>(notifications, nextCursor);
+    }
+
+    // Read from the per-user counter instead of counting notifications
     public Long getUnreadCount(Long userId) {
-        return notificationRepository.countByRecipientIdAndIsReadFalse(userId);
+        Long count = userRepository.findUnreadNotificationsCount(userId);
+        return count != null ? count : 0L;
     }
 
     @Transactional
@@ -73,44 +158,25 @@ public class NotificationService {
             throw new RuntimeException("You are not authorized to modify this notification");
         }
 
-        notification.setIsRead(true);
-        Notification updatedNotification = notificationRepository.save(notification);
-
-        return NotificationResponseDto.fromEntity(updatedNotification);
-    }
-
-    @Transactional
-    public void markAllAsRead(Long userId) {
-        List<Notification> unreadNotifications = notificationRepository
-                .findByRecipientIdAndIsReadFalseOrderByCreatedAtDesc(userId);
-
-        for (Notification notification : unreadNotifications) {
-            notification.setIsRead(true);
+        // Conditional update so a notification read twice only lowers the counter once
+        if (notificationRepository.markAsRead(notificationId, userId) > 0) {
+            userRepository.addToUnreadNotificationsCount(userId, -1);
+            notificationStreamService.send(userId, "unread-count", getUnreadCount(userId));
         }
 
-        notificationRepository.saveAll(unreadNotifications);
+        NotificationResponseDto response = NotificationResponseDto.fromEntity(notification);
+        response.setIsRead(true);
+        return response;
     }
 
+    // One bulk UPDATE, then the counter drops by the number of rows it changed (notifications inserted
+    // meanwhile stay counted)
     @Transactional
-    public void notifyFollowersAboutNewPost(Post post) {
-        User postCreator = userRepository.findByUsernameOrEmail(post.getCreator().getUsername());
-
-        List<Subscription> followers = postCreator.getFollowers();
-        String message = postCreator.getUsername() + " created a new post";
-
-        for (Subscription subscription : followers) {
-            User follower = subscription.getFollower();
-
-            if (follower.getId() != postCreator.getId()) {
-                Notification notification = new Notification();
-                notification.setType(NotificationType.NEW_POST);
-                notification.setMessage(message);
-                notification.setRelatedPostId(post.getId());
-                notification.setCreator(postCreator);
-                notification.setRecipient(follower);
-
-                notificationRepository.save(notification);
-            }
+    public void markAllAsRead(Long userId) {
+        int marked = notificationRepository.markAllAsRead(userId);
+        if (marked > 0) {
+            userRepository.addToUnreadNotificationsCount(userId, -marked);
         }
+        notificationStreamService.send(userId, "unread-count", getUnreadCount(userId));
     }
 }
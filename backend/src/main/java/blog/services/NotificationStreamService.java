@@ -0,0 +1,77 @@
+package blog.services;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Open server-sent event streams per user. Connections are held with async servlet support, so an idle
+// connected user costs no request thread and no database query.
+@Service
+public class NotificationStreamService {
+
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+
+    public NotificationStreamService(@Value("${notifications.stream.timeout-ms:1800000}") long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public SseEmitter open(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitters.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(emitter);
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        // Close cleanly on timeout, the client reconnects
+        emitter.onTimeout(() -> {
+            remove(userId, emitter);
+            emitter.complete();
+        });
+        emitter.onError(error -> remove(userId, emitter));
+        return emitter;
+    }
+
+    public boolean isConnected(Long userId) {
+        return emitters.containsKey(userId);
+    }
+
+    public void send(Long userId, String eventName, Object data) {
+        Set<SseEmitter> userEmitters = emitters.get(userId);
+        if (userEmitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : userEmitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data));
+            } catch (IOException | IllegalStateException e) {
+                remove(userId, emitter);
+            }
+        }
+    }
+
+    // Keeps proxies from closing idle streams and drops connections whose client went away
+    @Scheduled(fixedDelayString = "${notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        emitters.forEach((userId, userEmitters) -> {
+            for (SseEmitter emitter : userEmitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    remove(userId, emitter);
+                }
+            }
+        });
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (id, userEmitters) -> {
+            userEmitters.remove(emitter);
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+}
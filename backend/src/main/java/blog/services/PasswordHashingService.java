@@ -0,0 +1,83 @@
+package blog.services;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import blog.exceptions.TooManyRequestsException;
+
+// Runs BCrypt on the passwordHashingExecutor. A request thread only waits for its own hash; when the
+// executor is saturated the request fails fast with 429, so a login storm cannot take every worker.
+@Service
+public class PasswordHashingService {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor passwordHashingExecutor;
+    private final long timeoutMillis;
+    // Compared against when the user does not exist, so unknown and known identifiers cost the same
+    private final String dummyHash;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, ThreadPoolTaskExecutor passwordHashingExecutor,
+            @Value("${auth.hashing.timeout-ms:5000}") long timeoutMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.timeoutMillis = timeoutMillis;
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword != null ? encodedPassword : dummyHash));
+    }
+
+    // True when the hash was made with another BCrypt cost than the configured one
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    // Hash again in the background, the caller does not wait; skipped when the executor is busy
+    public void rehashLater(String rawPassword, Consumer<String> onHashed) {
+        try {
+            passwordHashingExecutor.execute(() -> onHashed.accept(passwordEncoder.encode(rawPassword)));
+        } catch (TaskRejectedException e) {
+            // Saturated: the next login will try again
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = passwordHashingExecutor.submit(task);
+        } catch (TaskRejectedException e) {
+            throw new TooManyRequestsException("The server is busy, please try again in a moment",
+                    RETRY_AFTER_SECONDS);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TooManyRequestsException("The server is busy, please try again in a moment",
+                    RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package blog.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import blog.repositories.PostRepository;
+
+// Fixes drift between posts.likes_count / comments_count and the likes and comments tables.
+// Runs shortly after startup (which also fills the columns on an existing database) and then periodically,
+// one id range per transaction so no long lock is held on posts.
+@Service
+public class PostCounterReconciler {
+
+    private final PostRepository postRepository;
+    private final int batchSize;
+
+    public PostCounterReconciler(PostRepository postRepository,
+            @Value("${counters.reconcile.batch-size:5000}") int batchSize) {
+        this.postRepository = postRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${counters.reconcile.initial-delay:PT10S}",
+            fixedDelayString = "${counters.reconcile.interval:PT30M}")
+    public void reconcile() {
+        long maxId = postRepository.findMaxId();
+
+        for (long afterId = 0; afterId < maxId; afterId += batchSize) {
+            postRepository.reconcileCounters(afterId, afterId + batchSize);
+        }
+    }
+}
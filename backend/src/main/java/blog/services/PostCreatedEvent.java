@@ -0,0 +1,27 @@
+package blog.services;
+
+// Published by PostService when a post is created, handled once the transaction has committed
+public class PostCreatedEvent {
+
+    private final Long postId;
+    private final Long creatorId;
+    private final String creatorUsername;
+
+    public PostCreatedEvent(Long postId, Long creatorId, String creatorUsername) {
+        this.postId = postId;
+        this.creatorId = creatorId;
+        this.creatorUsername = creatorUsername;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public Long getCreatorId() {
+        return creatorId;
+    }
+
+    public String getCreatorUsername() {
+        return creatorUsername;
+    }
+}
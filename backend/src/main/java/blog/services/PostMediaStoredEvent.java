@@ -0,0 +1,17 @@
+package blog.services;
+
+import java.util.List;
+
+// Published by PostService when images are added to a post, handled once the transaction has committed
+public class PostMediaStoredEvent {
+
+    private final List<String> imageUrls;
+
+    public PostMediaStoredEvent(List<String> imageUrls) {
+        this.imageUrls = imageUrls;
+    }
+
+    public List<String> getImageUrls() {
+        return imageUrls;
+    }
+}
@@ -0,0 +1,89 @@
+package blog.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import blog.dto.response.MediaResponseDto;
+import blog.dto.response.PostResponseDto;
+import blog.entity.Media;
+import blog.entity.Post;
+import blog.entity.ReportedType;
+import blog.repositories.MediaRepository;
+import blog.repositories.PostRepository;
+import blog.repositories.ReportRepository;
+
+// Builds post DTOs for a whole page with a fixed number of queries, whatever the number of likes or comments:
+// one for the media of all posts and one for the counts and the liked flag
+@Service
+public class PostResponseAssembler {
+
+    private final PostRepository postRepository;
+    private final MediaRepository mediaRepository;
+    private final ReportRepository reportRepository;
+    private final LikeBuffer likeBuffer;
+
+    public PostResponseAssembler(PostRepository postRepository, MediaRepository mediaRepository,
+            ReportRepository reportRepository, LikeBuffer likeBuffer) {
+        this.postRepository = postRepository;
+        this.mediaRepository = mediaRepository;
+        this.reportRepository = reportRepository;
+        this.likeBuffer = likeBuffer;
+    }
+
+    public PostResponseDto toDto(Post post, Long currentUserId) {
+        return toDtos(List.of(post), currentUserId).get(0);
+    }
+
+    public List<PostResponseDto> toDtos(List<Post> posts, Long currentUserId) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+
+        Map<Long, List<MediaResponseDto>> mediaByPost = new HashMap<>();
+        for (Media media : mediaRepository.findByPostIdIn(postIds)) {
+            mediaByPost.computeIfAbsent(media.getPost().getId(), id -> new ArrayList<>())
+                    .add(MediaResponseDto.fromEntity(media));
+        }
+
+        // Each row is (postId, likesCount, commentsCount, likedByCurrentUser)
+        Map<Long, Object[]> statsByPost = new HashMap<>();
+        for (Object[] row : postRepository.findPostStats(postIds, currentUserId)) {
+            statsByPost.put((Long) row[0], row);
+        }
+
+        return posts.stream()
+                .map(post -> {
+                    Object[] stats = statsByPost.get(post.getId());
+                    long likesCount = (stats != null ? (Long) stats[1] : 0) + likeBuffer.pendingCountDelta(post.getId());
+                    long commentsCount = stats != null ? (Long) stats[2] : 0;
+                    // A buffered toggle not yet written wins over the database state
+                    Boolean pendingLike = likeBuffer.pendingState(post.getId(), currentUserId);
+                    boolean liked = pendingLike != null ? pendingLike : stats != null && (Long) stats[3] > 0;
+                    return PostResponseDto.fromEntity(post, mediaByPost.getOrDefault(post.getId(), List.of()),
+                            likesCount, commentsCount, liked);
+                })
+                .toList();
+    }
+
+    // For admin dashboard: same page build plus the report count of each post
+    public List<PostResponseDto> toAdminDtos(List<Post> posts) {
+        List<PostResponseDto> dtos = toDtos(posts, null);
+        if (dtos.isEmpty()) {
+            return dtos;
+        }
+
+        Map<Long, Long> reportCounts = new HashMap<>();
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+        for (Object[] row : reportRepository.countByReportedIdsAndReportedType(postIds, ReportedType.POST)) {
+            reportCounts.put((Long) row[0], (Long) row[1]);
+        }
+
+        dtos.forEach(dto -> dto.setReportCount(reportCounts.getOrDefault(dto.getId(), 0L)));
+        return dtos;
+    }
+}
@@ -1,21 +1,20 @@
 package blog.services;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import blog.Config.FileStorageConfig;
 import blog.dto.request.CreatePostRequestDto;
 import blog.dto.response.PageResponse;
 import blog.dto.response.PostResponseDto;
@@ -28,7 +27,8 @@ import blog.exceptions.UserNotFoundException;
 import blog.repositories.MediaRepository;
 import blog.repositories.PostRepository;
 import blog.repositories.UserRepository;
-import blog.util.FileStorageUtils;
+import blog.util.CursorUtils;
+import blog.util.FileStorageUtils.StoredFile;
 import blog.util.ValidationUtils;
 
 @Service
@@ -38,56 +38,76 @@ public class PostService {
     private final UserRepository userRepository;
     private final MediaRepository mediaRepository;
     private final ObjectMapper objectMapper;
-    private final FileStorageConfig fileStorageConfig;
-    private final NotificationService notificationService;
+    private final MediaBlobService mediaBlobService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TimelineService timelineService;
+    private final PostResponseAssembler postResponseAssembler;
+    private final TransactionTemplate transactionTemplate;
 
     public PostService(PostRepository postRepository, UserRepository userRepository, MediaRepository mediaRepository,
-            ObjectMapper objectMapper, FileStorageConfig fileStorageConfig, NotificationService notificationService) {
+            ObjectMapper objectMapper, MediaBlobService mediaBlobService, ApplicationEventPublisher eventPublisher,
+            TimelineService timelineService, PostResponseAssembler postResponseAssembler,
+            TransactionTemplate transactionTemplate) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.mediaRepository = mediaRepository;
         this.objectMapper = objectMapper;
-        this.fileStorageConfig = fileStorageConfig;
-        this.notificationService = notificationService;
+        this.mediaBlobService = mediaBlobService;
+        this.eventPublisher = eventPublisher;
+        this.timelineService = timelineService;
+        this.postResponseAssembler = postResponseAssembler;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    @Transactional
-    public PostResponseDto createPost(CreatePostRequestDto createDto, User creator) {
+    public PostResponseDto createPost(CreatePostRequestDto createDto, Long creatorId) {
+        return withUploadedMedia(createDto.getFiles(), () -> insertPost(createDto, creatorId));
+    }
+
+    private PostResponseDto insertPost(CreatePostRequestDto createDto, Long creatorId) {
+        User creator = userRepository.getReferenceById(creatorId);
         Post post = new Post();
         post.setTitle(createDto.getTitle());
         post.setContent(createDto.getContent());
         post.setCreator(creator);
+        // Cleared once the followers' timelines and notifications are done, after commit
+        post.setTimelinePending(true);
+        post.setNotificationsPending(true);
 
         post = postRepository.save(post);
 
-        List<MultipartFile> files = createDto.getFiles();
+        List<StoredFile> files = createDto.getFiles();
         if (files != null && !files.isEmpty()) {
             post.setMediaList(saveMediaFiles(files, post));
         }
 
-        // Notify followers about the new post
-        notificationService.notifyFollowersAboutNewPost(post);
+        // The author's timeline gets the post now, the followers' after commit
+        timelineService.fanOutPost(post);
 
-        return PostResponseDto.fromEntity(post);
+        // Fill the followers' timelines and notify them in the background once the post is committed
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), creatorId, creator.getUsername()));
+
+        return postResponseAssembler.toDto(post, creatorId);
     }
 
     public PageResponse<PostResponseDto> getAllPosts(Long currentUserId, int page, int size) {
-        User currentUser = ValidationUtils.validateUserExists(currentUserId, userRepository);
-
-        // Create pageable with sorting by creation date descending
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        // Read the page from the user's materialized timeline instead of joining subscriptions
+        Page<Post> postPage = timelineService.getTimelinePage(currentUserId, page, size);
 
-        Page<Post> postPage = postRepository.findPostsByFollowedUsersPaged(currentUser, pageable);
+        List<PostResponseDto> postDtos = postResponseAssembler.toDtos(postPage.getContent(), currentUserId);
 
-        List<PostResponseDto> postDtos = postPage.getContent().stream()
-                .map(post -> PostResponseDto.fromEntity(post, currentUserId))
-                .toList();
-
-        return new PageResponse<>(
+        PageResponse<PostResponseDto> response = new PageResponse<>(
                 postDtos,
                 postPage.getNumber(),
                 postPage.getTotalPages(),
                 postPage.getTotalElements());
+        response.setNextCursor(nextCursorOf(postPage));
+        return response;
+    }
+
+    // Keyset mode of the home feed: seeks on (createdAt, id) and skips the count query
+    public PageResponse<PostResponseDto> getAllPostsByCursor(Long currentUserId, String cursor, int size) {
+        List<Post> posts = timelineService.getTimelinePostsAfter(currentUserId, CursorUtils.decode(cursor), size + 1);
+        return toCursorPage(posts, size, currentUserId);
     }
 
     public PageResponse<PostResponseDto> getPostsByUser(Long userId, Long currentUserId, int page, int size) {
@@ -98,15 +118,39 @@ public class PostService {
 
         Page<Post> posts = postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
 
-        List<PostResponseDto> postDtos = posts.getContent().stream()
-                .map(post -> PostResponseDto.fromEntity(post, currentUserId))
-                .toList();
+        List<PostResponseDto> postDtos = postResponseAssembler.toDtos(posts.getContent(), currentUserId);
 
-        return new PageResponse<>(
+        PageResponse<PostResponseDto> response = new PageResponse<>(
                 postDtos,
                 posts.getNumber(),
                 posts.getTotalPages(),
                 posts.getTotalElements());
+        response.setNextCursor(nextCursorOf(posts));
+        return response;
+    }
+
+    public PageResponse<PostResponseDto> getPostsByUserByCursor(Long userId, Long currentUserId, String cursor, int size) {
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        List<Post> posts = postRepository.findByUserIdAfter(userId, position.getCreatedAt(), position.getId(),
+                PageRequest.of(0, size + 1));
+        return toCursorPage(posts, size, currentUserId);
+    }
+
+    private PageResponse<PostResponseDto> toCursorPage(List<Post> posts, int size, Long currentUserId) {
+        String nextCursor = CursorUtils.trimAndEncode(posts, size, Post::getCreatedAt, Post::getId);
+
+        List<PostResponseDto> postDtos = postResponseAssembler.toDtos(posts, currentUserId);
+
+        return new PageResponse<>(postDtos, nextCursor);
+    }
+
+    // Lets a client that loaded an offset page continue in cursor mode
+    private String nextCursorOf(Page<Post> page) {
+        if (!page.hasNext() || page.getContent().isEmpty()) {
+            return null;
+        }
+        Post last = page.getContent().get(page.getContent().size() - 1);
+        return CursorUtils.encode(last.getCreatedAt(), last.getId());
     }
 
     public PostResponseDto getSinglePost(Long postId, Long currentUserId) {
@@ -117,10 +161,18 @@ public class PostService {
             throw new ResourceNotFoundException("Post not found");
         }
 
-        return PostResponseDto.fromEntity(post, currentUserId);
+        return postResponseAssembler.toDto(post, currentUserId);
     }
 
     public PostResponseDto updatePost(Long postId, CreatePostRequestDto updateRequest, Long currentUserId) {
+        // Checked before any file goes to the store; savePost checks again in its transaction
+        Post post = ValidationUtils.validatePostExists(postId, postRepository);
+        ValidationUtils.validateOwnership(post.getCreator().getId(), currentUserId, "post");
+
+        return withUploadedMedia(updateRequest.getFiles(), () -> savePost(postId, updateRequest, currentUserId));
+    }
+
+    private PostResponseDto savePost(Long postId, CreatePostRequestDto updateRequest, Long currentUserId) {
         Post post = ValidationUtils.validatePostExists(postId, postRepository);
         ValidationUtils.validateOwnership(post.getCreator().getId(), currentUserId, "post");
 
@@ -142,7 +194,7 @@ public class PostService {
         }
 
         // add new apploads media
-        List<MultipartFile> files = updateRequest.getFiles();
+        List<StoredFile> files = updateRequest.getFiles();
         if (files != null && !files.isEmpty()) {
             // Save new media
             List<Media> newMedia = saveMediaFiles(files, post);
@@ -152,18 +204,15 @@ public class PostService {
         }
 
         Post updatedPost = postRepository.save(post);
-        return PostResponseDto.fromEntity(updatedPost, currentUserId);
+        return postResponseAssembler.toDto(updatedPost, currentUserId);
     }
 
     private void deleteSpecificMedia(Post post, List<Long> deletedIds) {
         List<Media> mediaToDelete = post.getMediaList().stream().filter(media -> deletedIds.contains(media.getId()))
                 .toList();
 
-        for (Media media : mediaToDelete) {
-            // Delete file from disk
-            String uploadsDir = fileStorageConfig.getUploadDir() + "/posts";
-            FileStorageUtils.deleteFile(media.getUrl(), uploadsDir);
-        }
+        // Drop their references, a file goes with the last media using it
+        mediaBlobService.release(mediaToDelete);
         // Remove from post media list
         post.getMediaList().removeAll(mediaToDelete);
 
@@ -171,50 +220,70 @@ public class PostService {
         mediaRepository.deleteAll(mediaToDelete);
     }
 
+    @Transactional
     public void deletePost(Long postId, Long currentUserId) {
         Post post = ValidationUtils.validatePostExists(postId, postRepository);
         ValidationUtils.validateOwnership(post.getCreator().getId(), currentUserId, "post");
 
+        timelineService.removePost(postId);
         deleteOldMedia(post);
         postRepository.delete(post);
     }
 
-    private List<Media> saveMediaFiles(List<MultipartFile> files, Post post) {
+    // The media go to the store before the post's transaction starts, which then only references them: no
+    // connection or lock is held during the transfer. A failed transaction leaves nothing behind in the store.
+    private PostResponseDto withUploadedMedia(List<StoredFile> files, Supplier<PostResponseDto> transaction) {
+        if (files == null || files.isEmpty()) {
+            return transactionTemplate.execute(status -> transaction.get());
+        }
+        // Cleans up after itself when it fails
+        mediaBlobService.upload(files);
+        try {
+            return transactionTemplate.execute(status -> transaction.get());
+        } catch (RuntimeException e) {
+            mediaBlobService.discard(files);
+            throw e;
+        }
+    }
+
+    // The files were handed to the store by withUploadedMedia
+    private List<Media> saveMediaFiles(List<StoredFile> files, Post post) {
         List<Media> mediaList = new ArrayList<>();
-        String uploadsDir = fileStorageConfig.getUploadDir() + "/posts";
 
-        for (MultipartFile file : files) {
-            try {
-                // Save file using shared utility method
-                String fileName = FileStorageUtils.saveUploadedFile(file, uploadsDir, "");
-
-                // Determine media type based on content type
-                String contentType = file.getContentType();
-                MediaType mediaType = contentType != null && contentType.startsWith("image")
-                        ? MediaType.IMAGE
-                        : MediaType.VIDEO;
-
-                // Create media entity
-                Media media = new Media();
-                media.setUrl("/files/posts/" + fileName);
-                media.setType(mediaType);
-                media.setPost(post);
-
-                mediaList.add(media);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to save file: " + file.getOriginalFilename(), e);
-            }
+        for (StoredFile file : files) {
+            // Determine media type based on content type
+            String contentType = file.getContentType();
+            MediaType mediaType = contentType != null && contentType.startsWith("image")
+                    ? MediaType.IMAGE
+                    : MediaType.VIDEO;
+
+            // Create media entity
+            // Same content as an existing upload: share its file
+            String storedPath = mediaBlobService.store(file);
+
+            Media media = new Media();
+            media.setUrl("/files/posts/" + storedPath);
+            media.setContentHash(file.getSha256());
+            media.setType(mediaType);
+            media.setPost(post);
+
+            mediaList.add(media);
         }
 
-        return mediaRepository.saveAll(mediaList);
+        List<Media> saved = mediaRepository.saveAll(mediaList);
+
+        // Resized copies of the images are made in the background once the post is committed
+        List<String> imageUrls = saved.stream().filter(media -> media.getType() == MediaType.IMAGE)
+                .map(Media::getUrl).toList();
+        if (!imageUrls.isEmpty()) {
+            eventPublisher.publishEvent(new PostMediaStoredEvent(imageUrls));
+        }
+        return saved;
     }
 
     private void deleteOldMedia(Post post) {
         if (post.getMediaList() != null && !post.getMediaList().isEmpty()) {
-            String uploadsDir = fileStorageConfig.getUploadDir() + "/posts";
-            for (Media media : post.getMediaList()) {
-                FileStorageUtils.deleteFile(media.getUrl(), uploadsDir);
-            }
+            mediaBlobService.release(post.getMediaList());
             mediaRepository.deleteAll(post.getMediaList());
             post.getMediaList().clear();
         }
@@ -0,0 +1,22 @@
+package blog.services;
+
+// Published by ModerationService when a hidden post is made visible again, handled once the transaction has
+// committed
+public class PostUnhiddenEvent {
+
+    private final Long postId;
+    private final Long creatorId;
+
+    public PostUnhiddenEvent(Long postId, Long creatorId) {
+        this.postId = postId;
+        this.creatorId = creatorId;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public Long getCreatorId() {
+        return creatorId;
+    }
+}
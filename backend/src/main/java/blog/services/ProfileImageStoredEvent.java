@@ -0,0 +1,21 @@
+package blog.services;
+
+// Published by UserService when a user uploads a new profile image
+public class ProfileImageStoredEvent {
+
+    private final Long userId;
+    private final String url;
+
+    public ProfileImageStoredEvent(Long userId, String url) {
+        this.userId = userId;
+        this.url = url;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+}
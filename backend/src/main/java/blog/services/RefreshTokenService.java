@@ -0,0 +1,85 @@
+package blog.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import blog.entity.RefreshToken;
+import blog.exceptions.InvalidCredentialsException;
+import blog.repositories.RefreshTokenRepository;
+
+// Opaque refresh tokens, rotated on every use: the token presented is deleted and a new one is issued
+@Service
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpiration;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+            @Value("${jwt.refresh-expiration:1209600000}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    public String issue(long userId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(userId);
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration)));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    // Consume a refresh token and return its user id; a token can only be used once
+    @Transactional
+    public Long consume(String token) {
+        RefreshToken refreshToken = token != null ? refreshTokenRepository.findByTokenHash(hash(token)) : null;
+        if (refreshToken == null || refreshTokenRepository.deleteByTokenHash(refreshToken.getTokenHash()) == 0) {
+            throw new InvalidCredentialsException("Invalid refresh token. Please log in again.");
+        }
+        if (refreshToken.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidCredentialsException("Your session has expired. Please log in again.");
+        }
+        return refreshToken.getUserId();
+    }
+
+    public void revoke(String token) {
+        if (token != null) {
+            refreshTokenRepository.deleteByTokenHash(hash(token));
+        }
+    }
+
+    // Ends every session of the user (ban, deletion, role or password change)
+    public void revokeAllForUser(long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -38,21 +38,25 @@ public class ReportService {
     private final UserRepository userRepository;
     private final PostRepository postRepository;
     private final ModerationService moderationService;
+    private final TimelineService timelineService;
 
-    public ReportService(ReportRepository reportRepository, UserRepository userRepository, PostRepository postRepository, ModerationService moderationService) {
+    public ReportService(ReportRepository reportRepository, UserRepository userRepository, PostRepository postRepository,
+            ModerationService moderationService, TimelineService timelineService) {
         this.reportRepository = reportRepository;
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.moderationService = moderationService;
+        this.timelineService = timelineService;
     }
 
     @Transactional
-    public ReportResponseDto createReport(CreateReportRequestDto requestDto, User reporter) {
+    public ReportResponseDto createReport(CreateReportRequestDto requestDto, Long reporterId) {
+        User reporter = userRepository.getReferenceById(reporterId);
         validateReportedEntity(requestDto.getReportedType(), requestDto.getReportedId());
 
         // prevent users to report themselves
         if (requestDto.getReportedType() == ReportedType.USER
-                && requestDto.getReportedId().equals(reporter.getId())) {
+                && requestDto.getReportedId().equals(reporterId)) {
             throw new IllegalArgumentException("You cannot report yourself");
         }
 
@@ -167,13 +171,13 @@ public class ReportService {
 
     //Resolve a report    
     @Transactional
-    public void resolveReport(Long reportId, ResolveReportRequestDto requestDto, User admin) {
+    public void resolveReport(Long reportId, ResolveReportRequestDto requestDto, Long adminId) {
         Report report = reportRepository.findById(reportId)
                 .orElseThrow(() -> new ReportNotFoundException("Report not found with id: " + reportId));
 
         report.setStatus(requestDto.getStatus());
         report.setAdminNotes(requestDto.getAdminNotes());
-        report.setResolvedBy(admin);
+        report.setResolvedBy(userRepository.getReferenceById(adminId));
         report.setResolvedAt(LocalDateTime.now());
 
         // Take action based on the request
@@ -217,6 +221,7 @@ public class ReportService {
                             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
                     post.setIsHidden(true);
                     postRepository.save(post);
+                    timelineService.removePost(post.getId());
                 }
             }
             case DELETE_USER -> {
@@ -14,10 +14,13 @@ public class SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
     private final UserRepository userRepository;
+    private final TimelineService timelineService;
 
-    public SubscriptionService(SubscriptionRepository subscriptionRepository, UserRepository userRepository) {
+    public SubscriptionService(SubscriptionRepository subscriptionRepository, UserRepository userRepository,
+            TimelineService timelineService) {
         this.userRepository = userRepository;
         this.subscriptionRepository = subscriptionRepository;
+        this.timelineService = timelineService;
     }
 
     @Transactional
@@ -42,6 +45,7 @@ public class SubscriptionService {
         subscription.setFollower(follower);
         subscription.setFollowing(following);
         subscriptionRepository.save(subscription);
+        timelineService.onFollow(followerId, followingId);
 
         UserResponseDto response = UserResponseDto.fromEntity(following);
         response.setIsFollowedByCurrentUser(true);
@@ -64,6 +68,7 @@ public class SubscriptionService {
                 .orElseThrow(() -> new IllegalArgumentException("Not following this user"));
 
         subscriptionRepository.delete(subscription);
+        timelineService.onUnfollow(followerId, followingId);
 
         UserResponseDto response = UserResponseDto.fromEntity(following);
         response.setIsFollowedByCurrentUser(false);
@@ -0,0 +1,164 @@
+package blog.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import blog.entity.Post;
+import blog.repositories.PostRepository;
+import blog.repositories.SubscriptionRepository;
+import blog.repositories.TimelineRepository;
+import blog.util.CursorUtils;
+
+// Keeps the per-user home timelines in sync with posts and subscriptions (fan-out on write).
+// A new or unhidden post only goes into its author's timeline inside the request transaction; the followers'
+// timelines are filled after commit on the timelineExecutor, by follower id ranges. The post stays marked
+// timeline_pending until that is done, so a task rejected by a full queue or lost in a restart is run again by
+// retryPending.
+@Service
+public class TimelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimelineService.class);
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    private final TimelineRepository timelineRepository;
+    private final PostRepository postRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final ThreadPoolTaskExecutor timelineExecutor;
+    private final int chunkSize;
+    private final long retryIntervalMillis;
+
+    public TimelineService(TimelineRepository timelineRepository, PostRepository postRepository,
+            SubscriptionRepository subscriptionRepository, ThreadPoolTaskExecutor timelineExecutor,
+            @Value("${timeline.fanout.chunk-size:1000}") int chunkSize,
+            @Value("${timeline.fanout.retry-interval-ms:60000}") long retryIntervalMillis) {
+        this.timelineRepository = timelineRepository;
+        this.postRepository = postRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.timelineExecutor = timelineExecutor;
+        this.chunkSize = chunkSize;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    // Fill the timelines once when the table is introduced on an existing database
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (!timelineRepository.hasAnyEntry()) {
+            timelineRepository.backfillAll();
+        }
+    }
+
+    public Page<Post> getTimelinePage(Long ownerId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        return timelineRepository.findTimelinePosts(ownerId, pageable);
+    }
+
+    public List<Post> getTimelinePostsAfter(Long ownerId, CursorUtils.Cursor cursor, int limit) {
+        return timelineRepository.findTimelinePostsAfter(ownerId, cursor.getCreatedAt(), cursor.getId(),
+                PageRequest.of(0, limit));
+    }
+
+    // New or unhidden post: the author sees it at once, the followers once it is committed (the post is marked
+    // timeline_pending by the caller for a new post, here for an unhidden one)
+    @Transactional
+    public void fanOutPost(Post post) {
+        timelineRepository.addToAuthorTimeline(post.getId());
+        postRepository.markTimelinePending(post.getId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        submit(event.getPostId(), event.getCreatorId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostUnhidden(PostUnhiddenEvent event) {
+        submit(event.getPostId(), event.getCreatorId());
+    }
+
+    // Posts whose fan-out did not run; their task would have finished long before retryIntervalMillis. A post
+    // that fails stays pending for the next run.
+    @Scheduled(fixedDelayString = "${timeline.fanout.retry-interval-ms:60000}")
+    public void retryPending() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(retryIntervalMillis * 1_000_000);
+        long afterId = 0;
+        List<Post> posts;
+        do {
+            posts = postRepository.findTimelinePendingBefore(before, afterId, PageRequest.of(0, RETRY_BATCH_SIZE));
+            for (Post post : posts) {
+                try {
+                    fanOutToFollowers(post.getId(), post.getCreator().getId());
+                } catch (RuntimeException e) {
+                    log.warn("Timeline fan-out of post {} failed, it stays pending", post.getId(), e);
+                }
+                afterId = post.getId();
+            }
+        } while (posts.size() == RETRY_BATCH_SIZE);
+    }
+
+    // A full queue leaves the post pending for retryPending instead of running the fan-out on this thread
+    private void submit(Long postId, Long authorId) {
+        try {
+            timelineExecutor.execute(() -> fanOutToFollowers(postId, authorId));
+        } catch (RejectedExecutionException e) {
+            log.warn("Timeline queue full, fan-out of post {} left pending for retry", postId);
+        }
+    }
+
+    // Each chunk commits on its own; running it twice is harmless, existing entries are skipped
+    private void fanOutToFollowers(Long postId, Long authorId) {
+        long afterId = 0;
+        while (true) {
+            List<Long> followerIds = subscriptionRepository.findFollowerIdsAfter(authorId, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (followerIds.isEmpty()) {
+                break;
+            }
+            long upToId = followerIds.get(followerIds.size() - 1);
+            timelineRepository.fanOutToFollowers(postId, afterId, upToId);
+            if (followerIds.size() < chunkSize) {
+                break;
+            }
+            afterId = upToId;
+        }
+        postRepository.clearTimelinePending(postId);
+    }
+
+    // Deleted or hidden post: drop it from every timeline
+    @Transactional
+    public void removePost(Long postId) {
+        timelineRepository.deleteByPostId(postId);
+    }
+
+    @Transactional
+    public void onFollow(Long followerId, Long followingId) {
+        timelineRepository.copyAuthorPosts(followerId, followingId);
+    }
+
+    @Transactional
+    public void onUnfollow(Long followerId, Long followingId) {
+        timelineRepository.deleteByOwnerIdAndAuthorId(followerId, followingId);
+    }
+
+    // Deleted user: drop their own timeline and their posts from everyone else's
+    @Transactional
+    public void removeUser(Long userId) {
+        timelineRepository.deleteByUserId(userId);
+    }
+}
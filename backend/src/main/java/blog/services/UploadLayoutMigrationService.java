@@ -0,0 +1,178 @@
+package blog.services;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import blog.Config.FileStorageConfig;
+import blog.entity.User;
+import blog.repositories.MediaRepository;
+import blog.repositories.UserRepository;
+import blog.storage.LocalMediaStore;
+import blog.storage.MediaStore;
+import blog.util.FileStorageUtils;
+import blog.util.ImageVariantUtils;
+
+// Moves files stored before sharding (uploads/posts/<name>, uploads/<name>) into their shard directory
+// (see FileStorageUtils.shardedPath) and rewrites Media.url and User.profileImgUrl, one small batch per run
+// so the site stays responsive. Each file is moved before its URL is rewritten, and MediaFileServlet looks a
+// missing file up in the other layout, so both URLs work throughout. Nothing is recorded: rows still in the
+// flat layout are found again after a restart, and a run that finds none moves on to the next kind of file.
+// A file that could not be moved keeps its flat URL and is tried again: a pass with I/O errors starts over
+// after uploads.migration.retry-delay-ms instead of moving on.
+@Service
+public class UploadLayoutMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadLayoutMigrationService.class);
+
+    private enum Phase {
+        POST_MEDIA, PROFILE_IMAGES, POST_VARIANTS, AVATAR_VARIANTS, DONE
+    }
+
+    private final MediaRepository mediaRepository;
+    private final UserRepository userRepository;
+    private final FileStorageConfig fileStorageConfig;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retryDelayMs;
+
+    // Only used by the scheduler thread
+    private Phase phase = Phase.POST_MEDIA;
+    private String afterUrl = "";
+    private long afterUserId = 0;
+    // Whether the current pass over the phase hit an I/O error
+    private boolean failed;
+    private long retryAt;
+
+    public UploadLayoutMigrationService(MediaRepository mediaRepository, UserRepository userRepository,
+            FileStorageConfig fileStorageConfig, MediaStore mediaStore,
+            @Value("${uploads.migration.enabled:true}") boolean enabled,
+            @Value("${uploads.migration.batch-size:200}") int batchSize,
+            @Value("${uploads.migration.retry-delay-ms:60000}") long retryDelayMs) {
+        this.mediaRepository = mediaRepository;
+        this.userRepository = userRepository;
+        this.fileStorageConfig = fileStorageConfig;
+        // Flat files only exist on the local disk: other stores were always written sharded
+        this.enabled = enabled && mediaStore instanceof LocalMediaStore;
+        this.batchSize = batchSize;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.migration.interval-ms:1000}")
+    public void migrateBatch() {
+        if (!enabled || phase == Phase.DONE || System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        boolean more = switch (phase) {
+            case POST_MEDIA -> migratePostMedia();
+            case PROFILE_IMAGES -> migrateProfileImages();
+            case POST_VARIANTS -> migrateFlatFiles(ImageVariantUtils.POST_DIR);
+            case AVATAR_VARIANTS -> migrateFlatFiles(ImageVariantUtils.AVATAR_DIR);
+            default -> false;
+        };
+        if (more) {
+            return;
+        }
+        if (failed) {
+            // Files moved since are not found again, the next pass only sees what is left
+            failed = false;
+            afterUrl = "";
+            afterUserId = 0;
+            retryAt = System.currentTimeMillis() + retryDelayMs;
+        } else {
+            phase = Phase.values()[phase.ordinal() + 1];
+        }
+    }
+
+    private boolean migratePostMedia() {
+        String postsDir = uploadDir("posts");
+        List<String> urls = mediaRepository.findFlatUrlsAfter(afterUrl, PageRequest.of(0, batchSize));
+        for (String url : urls) {
+            // Skipped on failure, the row keeps its working flat URL until the next pass
+            afterUrl = url;
+            String sharded = moveToShard(postsDir, url);
+            if (sharded != null) {
+                mediaRepository.updateUrl(url, "/files/posts/" + sharded);
+            }
+        }
+        return urls.size() == batchSize;
+    }
+
+    private boolean migrateProfileImages() {
+        String uploadsDir = uploadDir("");
+        List<User> users = userRepository.findWithFlatProfileImgAfter(afterUserId, PageRequest.of(0, batchSize));
+        for (User user : users) {
+            afterUserId = user.getId();
+            String url = user.getProfileImgUrl();
+            String sharded = moveToShard(uploadsDir, url);
+            if (sharded != null) {
+                userRepository.updateProfileImgUrl(user.getId(), url, "/files/" + sharded);
+            }
+        }
+        return users.size() == batchSize;
+    }
+
+    // Derivatives have no URL of their own (it is computed from the original's), only their files move
+    private boolean migrateFlatFiles(String dir) {
+        Path base = Paths.get(uploadDir(dir));
+        if (!Files.isDirectory(base)) {
+            return false;
+        }
+        int moved = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(base, Files::isRegularFile)) {
+            for (Path file : files) {
+                if (moved == batchSize) {
+                    return true;
+                }
+                if (moveToShard(base.toString(), file.getFileName().toString()) != null) {
+                    moved++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list {} for the upload layout migration", base, e);
+            failed = true;
+        }
+        return false;
+    }
+
+    // Returns the file's new path relative to baseDir, or null when it cannot be sharded or moved. A failed
+    // move marks the pass as failed.
+    private String moveToShard(String baseDir, String url) {
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        String sharded = FileStorageUtils.shardedPath(name);
+        if (sharded.equals(name) || name.endsWith(".tmp")) {
+            return null;
+        }
+        Path from = Paths.get(baseDir).resolve(name);
+        Path to = Paths.get(baseDir).resolve(sharded);
+        try {
+            if (Files.exists(from)) {
+                Files.createDirectories(to.getParent());
+                // A sharded copy can only hold the same content: names are random or content hashes
+                Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else if (!Files.exists(to)) {
+                return null;
+            }
+        } catch (IOException e) {
+            log.warn("Could not move {} to {}", from, to, e);
+            failed = true;
+            return null;
+        }
+        return sharded;
+    }
+
+    private String uploadDir(String dir) {
+        return Paths.get(fileStorageConfig.getUploadDir(), dir).toString();
+    }
+}
@@ -0,0 +1,133 @@
+package blog.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Service;
+
+import blog.Config.FileStorageConfig;
+import blog.exceptions.ValidationException;
+import blog.util.FileStorageUtils;
+import blog.util.FileStorageUtils.StoredFile;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
+
+// Turns the parts of a multipart upload into staged files. The container has already written each file part
+// once, to the staging directory (see MultipartConfig), enforcing the size limits while the bytes arrived: a
+// part is only renamed to its staged name and hashed, never copied.
+@Service
+public class UploadService {
+
+    // Text fields (title, content...) are small, a larger one is not a form we produce
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+
+    private final FileStorageConfig fileStorageConfig;
+
+    public UploadService(FileStorageConfig fileStorageConfig) {
+        this.fileStorageConfig = fileStorageConfig;
+    }
+
+    // The text fields of a received form and the files already staged from it
+    public static class UploadedForm {
+
+        private final Map<String, String> fields = new HashMap<>();
+        private final List<StoredFile> files = new ArrayList<>();
+
+        public String getField(String name) {
+            return fields.get(name);
+        }
+
+        public List<StoredFile> getFiles() {
+            return files;
+        }
+
+        // First file sent under this field name, or null
+        public StoredFile getFile(String fieldName) {
+            return files.stream().filter(file -> fieldName.equals(file.getFieldName())).findFirst().orElse(null);
+        }
+    }
+
+    public interface FormHandler<T> {
+        T handle(UploadedForm form) throws IOException;
+    }
+
+    // Stage the files of the request into subDir of the staging directory and pass the form to the handler. The
+    // staged files are removed again when validation or the handler fails, so a rejected upload leaves nothing
+    // behind; parts not staged yet are deleted by the container at the end of the request.
+    //  contentTypeCheck Throws for a file part whose content type is not accepted
+    public <T> T receive(HttpServletRequest request, String subDir, String defaultExtension,
+            Consumer<String> contentTypeCheck, FormHandler<T> handler) throws IOException {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/")) {
+            throw new ValidationException("Expected a multipart/form-data request");
+        }
+
+        String stagingDir = subDir.isEmpty() ? fileStorageConfig.getStagingDir() : fileStorageConfig.getStagingDir() + "/" + subDir;
+        UploadedForm form = new UploadedForm();
+        try {
+            read(request, form, stagingDir, defaultExtension, contentTypeCheck);
+            return handler.handle(form);
+        } catch (IOException | RuntimeException e) {
+            for (StoredFile file : form.files) {
+                FileStorageUtils.deleteFile(file.getFileName(), stagingDir);
+            }
+            throw e;
+        }
+    }
+
+    private void read(HttpServletRequest request, UploadedForm form, String stagingDir, String defaultExtension,
+            Consumer<String> contentTypeCheck) throws IOException {
+        Collection<Part> parts;
+        try {
+            parts = request.getParts();
+        } catch (ServletException e) {
+            throw new ValidationException("Malformed multipart request");
+        }
+        for (Part part : parts) {
+            if (part.getSubmittedFileName() == null) {
+                try (InputStream content = part.getInputStream()) {
+                    form.fields.put(part.getName(), readField(content));
+                }
+                continue;
+            }
+            // An empty file input still sends a part, with no file name
+            if (part.getSubmittedFileName().isEmpty()) {
+                continue;
+            }
+            if (contentTypeCheck != null) {
+                contentTypeCheck.accept(part.getContentType());
+            }
+            form.files.add(stage(part, stagingDir, defaultExtension));
+        }
+    }
+
+    // Renames the part under a unique name; the content hash is read back from the staged file
+    private StoredFile stage(Part part, String stagingDir, String defaultExtension) throws IOException {
+        Path dir = Files.createDirectories(Paths.get(stagingDir));
+        String fileName = UUID.randomUUID() + FileStorageUtils.extensionOf(part.getSubmittedFileName(), defaultExtension);
+        Path staged = dir.resolve(fileName).toAbsolutePath();
+        part.write(staged.toString());
+        return new StoredFile(fileName, part.getSize(), FileStorageUtils.sha256Of(staged), part.getContentType(),
+                part.getName());
+    }
+
+    private String readField(InputStream content) throws IOException {
+        byte[] bytes = content.readNBytes(MAX_FIELD_BYTES + 1);
+        if (bytes.length > MAX_FIELD_BYTES) {
+            throw new ValidationException("Form field is too large");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
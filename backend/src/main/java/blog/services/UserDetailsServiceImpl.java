@@ -23,7 +23,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String identifier) throws UsernameNotFoundException {
         try {
-            User user = userRepository.findByUsernameOrEmail(identifier);
+            User user = userRepository.findByIdentifier(identifier);
 
             if (user == null) {
                 throw new UserNotFoundException("User not found with identifier: " + identifier);
@@ -1,51 +1,120 @@
 package blog.services;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.annotation.Transactional;
 
 import blog.Config.FileStorageConfig;
 import blog.dto.request.UpdateProfileRequestDto;
 import blog.dto.response.UserResponseDto;
 import blog.entity.User;
 import blog.exceptions.InvalidFileSizeException;
+import blog.exceptions.ValidationException;
 import blog.exceptions.UserAlreadyExistsException;
 import blog.exceptions.UserNotFoundException;
+import blog.repositories.UserLookupIndexRepository;
 import blog.repositories.UserRepository;
+import blog.security.AuthenticatedUser;
+import blog.security.UserStateCache;
+import blog.storage.MediaStore;
 import blog.util.FileStorageUtils;
+import blog.util.FileStorageUtils.StoredFile;
+import blog.util.IdentifierUtils;
 
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final SubscriptionService subscriptionService;
     private final FileStorageConfig fileStorageConfig;
-
-    public UserService(PasswordEncoder passwordEncoder, UserRepository userRepository,
-            SubscriptionService subscriptionService, FileStorageConfig fileStorageConfig) {
-        this.passwordEncoder = passwordEncoder;
+    private final RefreshTokenService refreshTokenService;
+    private final UserStateCache userStateCache;
+    private final MediaStore mediaStore;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserLookupIndexRepository userLookupIndexRepository;
+
+    public UserService(PasswordHashingService passwordHashingService, UserRepository userRepository,
+            SubscriptionService subscriptionService, FileStorageConfig fileStorageConfig,
+            RefreshTokenService refreshTokenService, UserStateCache userStateCache, MediaStore mediaStore,
+            ImageDerivativeService imageDerivativeService, ApplicationEventPublisher eventPublisher,
+            UserLookupIndexRepository userLookupIndexRepository) {
+        this.passwordHashingService = passwordHashingService;
         this.userRepository = userRepository;
         this.subscriptionService = subscriptionService;
         this.fileStorageConfig = fileStorageConfig;
+        this.refreshTokenService = refreshTokenService;
+        this.userStateCache = userStateCache;
+        this.mediaStore = mediaStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.eventPublisher = eventPublisher;
+        this.userLookupIndexRepository = userLookupIndexRepository;
     }
 
-    public User getCurrentUserEntity() {
+    // Users created before the case-insensitive lookup columns get them filled once, then the columns are
+    // indexed. A column whose legacy values differ only by case is reported and gets a plain index instead of a
+    // unique one; the server starts either way.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLookupColumns() {
+        try {
+            boolean usernamesCollide = reportCaseCollisions("username");
+            boolean emailsCollide = reportCaseCollisions("email");
+            // A unique index left by an earlier version would fail the backfill
+            if (usernamesCollide) {
+                userLookupIndexRepository.usePlainIndex("username_lower");
+            }
+            if (emailsCollide) {
+                userLookupIndexRepository.usePlainIndex("email_lower");
+            }
+            userRepository.backfillLookupColumns();
+            if (!usernamesCollide) {
+                userLookupIndexRepository.useUniqueIndex("username_lower");
+            }
+            if (!emailsCollide) {
+                userLookupIndexRepository.useUniqueIndex("email_lower");
+            }
+        } catch (DataAccessException e) {
+            log.error("Could not backfill or index the user lookup columns", e);
+        }
+    }
+
+    private boolean reportCaseCollisions(String column) {
+        List<String> collisions = userLookupIndexRepository.findCaseCollisions(column);
+        for (String collision : collisions) {
+            log.warn("Accounts differ only by the case of their {}: {}. Rename them to make the {} lookup unique",
+                    column, collision, column);
+        }
+        return !collisions.isEmpty();
+    }
+
+    public AuthenticatedUser getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return (User) auth.getPrincipal();
+        return (AuthenticatedUser) auth.getPrincipal();
+    }
+
+    // The principal only carries the token claims: load the entity when the full profile is needed
+    public User getCurrentUserEntity() {
+        return userRepository.findById(getCurrentUser().getId())
+                .orElseThrow(() -> new UserNotFoundException("User not found"));
     }
 
     public UserResponseDto getUserProfile(String username, Long currentUserId) {
-        User user = userRepository.findByUsernameOrEmail(username);
+        User user = userRepository.findByIdentifier(username);
 
         if (user == null) {
             throw new UserNotFoundException("User not found with username: " + username);
@@ -67,6 +136,7 @@ public class UserService {
         return userResponse;
     }
 
+    @Transactional
     public UserResponseDto updateProfile(Long userId, UpdateProfileRequestDto updateDto) {
 
         User user = userRepository.findById(userId)
@@ -86,7 +156,9 @@ public class UserService {
         if (updateDto.getEmail() != null && !updateDto.getEmail().trim().isEmpty()) {
             String newEmail = updateDto.getEmail().trim();
             if (!user.getEmail().equals(newEmail)) {
-                if (userRepository.existsByEmail(newEmail)) {
+                // Changing only the case of the own address is allowed
+                if (!user.getEmail().equalsIgnoreCase(newEmail)
+                        && userRepository.existsByEmailLower(IdentifierUtils.normalize(newEmail))) {
                     throw new UserAlreadyExistsException("Email already exists");
                 }
                 user.setEmail(newEmail);
@@ -95,7 +167,11 @@ public class UserService {
 
         // Update password
         if (updateDto.getPassword() != null && !updateDto.getPassword().trim().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(updateDto.getPassword()));
+            user.setPassword(passwordHashingService.encode(updateDto.getPassword()));
+            // A new password ends every open session, including this one
+            userRepository.incrementTokenVersion(userId);
+            refreshTokenService.revokeAllForUser(userId);
+            userStateCache.invalidate(userId);
         }
 
         // Update bio
@@ -107,39 +183,42 @@ public class UserService {
         return UserResponseDto.fromEntity(updatedUser);
     }
 
-    public UserResponseDto updateProfileImg(Long userId, MultipartFile file) throws IOException {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        // Validate file size (50MB max)
-        long maxFileSize = 50 * 1024 * 1024; // 50MB in bytes
-        if (file.getSize() > maxFileSize) {
-            throw new InvalidFileSizeException("File size must be less than 50MB");
-        }
-
-        // Validate file type
-        String contentType = file.getContentType();
+    // Checked by UploadService before the image body is read; the size limit is enforced while streaming
+    public static void checkProfileImgType(String contentType) {
         if (contentType == null || (!contentType.equals("image/jpeg")
                 && !contentType.equals("image/jpg")
                 && !contentType.equals("image/png")
                 && !contentType.equals("image/gif"))) {
             throw new InvalidFileSizeException("Only JPG, PNG, and GIF images are allowed");
         }
+    }
 
-        // Get upload directory from configuration
-        String uploadsDir = fileStorageConfig.getUploadDir();
+    // The file was already stored by UploadService while the request was read
+    public UserResponseDto updateProfileImg(Long userId, StoredFile file) throws IOException {
+        if (file == null) {
+            throw new ValidationException("Profile image is required");
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("User not found"));
+
+        // Staged by UploadService, outside the served directory
+        String stagingDir = fileStorageConfig.getStagingDir();
 
         // Delete old profile picture if exists
         if (user.getProfileImgUrl() != null && !user.getProfileImgUrl().isEmpty()) {
-            FileStorageUtils.deleteFile(user.getProfileImgUrl(), uploadsDir);
+            mediaStore.deleteFile("", user.getProfileImgUrl());
+            imageDerivativeService.deleteAvatarVariants(user.getProfileImgUrl());
         }
 
-        // Save new file using shared utility method
-        String fileName = FileStorageUtils.saveUploadedFile(file, uploadsDir, ".jpg");
-
-        user.setProfileImgUrl("/files/" + fileName);
+        String storedPath = FileStorageUtils.shardedPath(file.getFileName());
+        mediaStore.putFile(storedPath, Paths.get(stagingDir, file.getFileName()), file.getContentType());
+        user.setProfileImgUrl("/files/" + storedPath);
+        user.setAvatarVariants(null);
         User updatedUser = userRepository.save(user);
 
+        // Avatar sizes are generated in the background
+        eventPublisher.publishEvent(new ProfileImageStoredEvent(userId, updatedUser.getProfileImgUrl()));
+
         return UserResponseDto.fromEntity(updatedUser);
     }
 
@@ -147,16 +226,15 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
-        // Get upload directory from configuration
-        String uploadsDir = fileStorageConfig.getUploadDir();
         String fileUrl = user.getProfileImgUrl();
         if (fileUrl != null && !fileUrl.isEmpty()) {
             try {
                 String fileName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
                 System.out.println("filename: " + fileName);
-                Path filePath = Paths.get(uploadsDir).resolve(fileName).normalize();
-                Files.deleteIfExists(filePath);
+                mediaStore.delete(mediaStore.locate("", fileName));
+                imageDerivativeService.deleteAvatarVariants(fileUrl);
                 user.setProfileImgUrl(null);
+                user.setAvatarVariants(null);
             } catch (IOException e) {
                 System.err.println("Could not delete file: " + fileUrl);
             }
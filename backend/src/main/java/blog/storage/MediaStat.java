@@ -0,0 +1,22 @@
+package blog.storage;
+
+// Size and date of a stored object
+public class MediaStat {
+
+    private final long size;
+    private final long lastModified;
+
+    public MediaStat(long size, long lastModified) {
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    // Epoch millis
+    public long getLastModified() {
+        return lastModified;
+    }
+}
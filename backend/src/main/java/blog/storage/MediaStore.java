@@ -0,0 +1,59 @@
+package blog.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import org.slf4j.LoggerFactory;
+
+import blog.util.FileStorageUtils;
+
+// Where uploaded media live. Objects are addressed by key, their path under /files/ ("posts/ab/cd/<name>.png"),
+// and never change once written: a new content gets a new key. Uploads are staged on the local disk
+// (file.staging-dir) and handed over with putFile. Implementations: LocalMediaStore (media.store.type=local,
+// the default) and S3MediaStore (media.store.type=s3), which lets several backend nodes share one media tier.
+public interface MediaStore {
+
+    // Stores size bytes read from content; readers never see a partial object
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    // Stores a staged file; it is gone from the staging area afterwards
+    void putFile(String key, Path file, String contentType) throws IOException;
+
+    // Null when there is no such object
+    MediaStat stat(String key) throws IOException;
+
+    // Throws NoSuchFileException when there is no such object
+    InputStream get(String key) throws IOException;
+
+    // Bytes start to end, both included
+    InputStream get(String key, long start, long end) throws IOException;
+
+    // Deleting a missing object is not an error
+    void delete(String key) throws IOException;
+
+    // The object as a local file, for stores on the local filesystem: lets it be sent with sendfile
+    default Path localPath(String key) {
+        return null;
+    }
+
+    // Delete a stored file in whichever layout it is (see FileStorageUtils.shardedPath); fileUrl may be a URL,
+    // a sharded path or a bare name. A failure is logged, not thrown: callers are cleaning up after a change
+    // that already happened, and a leftover object only costs space.
+    default void deleteFile(String dir, String fileUrl) {
+        String fileName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        try {
+            delete(FileStorageUtils.storageKey(dir, FileStorageUtils.shardedPath(fileName)));
+            delete(FileStorageUtils.storageKey(dir, fileName));
+        } catch (IOException e) {
+            // An interface cannot hold a private logger
+            LoggerFactory.getLogger(MediaStore.class).warn("Could not delete {} from {}", fileName, dir, e);
+        }
+    }
+
+    // Key of a file in dir, in its shard or, for files stored before sharding, flat in dir
+    default String locate(String dir, String fileName) throws IOException {
+        String sharded = FileStorageUtils.storageKey(dir, FileStorageUtils.shardedPath(fileName));
+        return stat(sharded) != null ? sharded : FileStorageUtils.storageKey(dir, fileName);
+    }
+}
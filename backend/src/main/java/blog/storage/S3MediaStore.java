@@ -0,0 +1,152 @@
+package blog.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+// Media kept in a bucket of an S3-compatible object store (AWS S3, MinIO...), the key being the object key.
+// Every backend node then sees the same files. Objects are only visible once fully uploaded, and nothing is
+// kept locally: staged uploads are removed once stored.
+@Component
+@ConditionalOnProperty(name = "media.store.type", havingValue = "s3")
+public class S3MediaStore implements MediaStore {
+
+    private final S3Client client;
+    private final String bucket;
+
+    public S3MediaStore(@Value("${media.store.s3.endpoint:}") String endpoint,
+            @Value("${media.store.s3.region:us-east-1}") String region,
+            @Value("${media.store.s3.bucket}") String bucket,
+            @Value("${media.store.s3.access-key}") String accessKey,
+            @Value("${media.store.s3.secret-key}") String secretKey,
+            @Value("${media.store.s3.path-style:true}") boolean pathStyle,
+            @Value("${media.store.s3.create-bucket:false}") boolean createBucket) {
+        var builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .forcePathStyle(pathStyle)
+                // Checksums the SDK would add by default are not understood by every S3-compatible server
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED);
+        // Empty for AWS itself
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = builder.build();
+        this.bucket = bucket;
+
+        if (createBucket) {
+            createBucketIfMissing();
+        }
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        try {
+            client.putObject(request -> request.bucket(bucket).key(key).contentType(contentType),
+                    RequestBody.fromInputStream(content, size));
+        } catch (SdkException e) {
+            throw new IOException("Failed to store " + key, e);
+        }
+    }
+
+    @Override
+    public void putFile(String key, Path file, String contentType) throws IOException {
+        try {
+            client.putObject(request -> request.bucket(bucket).key(key).contentType(contentType),
+                    RequestBody.fromFile(file));
+        } catch (SdkException e) {
+            throw new IOException("Failed to store " + key, e);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public MediaStat stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(request -> request.bucket(bucket).key(key));
+            return new MediaStat(head.contentLength(), head.lastModified().toEpochMilli());
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            // HEAD responses have no body, a missing object is only a 404
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Failed to read " + key, e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(key));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long start, long end) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(key).range("bytes=" + start + "-" + end));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close();
+    }
+
+    // For local setups against MinIO; in production the bucket and its permissions are provisioned beforehand
+    private void createBucketIfMissing() {
+        try {
+            client.headBucket(request -> request.bucket(bucket));
+        } catch (NoSuchBucketException e) {
+            client.createBucket(request -> request.bucket(bucket));
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                throw e;
+            }
+            client.createBucket(request -> request.bucket(bucket));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package blog.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import blog.exceptions.ValidationException;
+
+// Opaque keyset cursors: a (createdAt, id) position encoded as url-safe base64
+public class CursorUtils {
+
+    // Position used for the first page: sorts after every real row
+    private static final Cursor START = new Cursor(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    public static class Cursor {
+
+        private final LocalDateTime createdAt;
+        private final Long id;
+
+        public Cursor(LocalDateTime createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+
+    public static String encode(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // An empty cursor means "start from the newest row"
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    // Rows are fetched with one extra look-ahead row: drop it and return the cursor of the last kept row,
+    // or null when there is nothing after this page
+    public static <T> String trimAndEncode(List<T> rows, int size, Function<T, LocalDateTime> createdAt,
+            Function<T, Long> id) {
+        if (rows.size() <= size) {
+            return null;
+        }
+        rows.subList(size, rows.size()).clear();
+        T last = rows.get(size - 1);
+        return encode(createdAt.apply(last), id.apply(last));
+    }
+}
@@ -1,50 +1,110 @@
 package blog.util;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
 
-import org.springframework.web.multipart.MultipartFile;
 
 public class FileStorageUtils {
 
-    // Saves an uploaded file to the specified directory with a unique filename
-    //  file The multipart file to save
-    //  uploadDir The directory where the file should be saved
-    //  defaultExtension Default extension if file has none
-    public static String saveUploadedFile(MultipartFile file, String uploadDir, String defaultExtension) throws IOException {
-        // Create directory if it doesn't exist
-        File dir = new File(uploadDir);
-        if (!dir.exists()) {
-            dir.mkdirs();
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+    private static final Pattern SHARD_PREFIX = Pattern.compile("[0-9a-f]{4}.*");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // An upload staged by UploadService, with what was learned while receiving it
+    public static class StoredFile {
+
+        private final String fileName;
+        private final long size;
+        private final String sha256;
+        private final String contentType;
+        private final String fieldName;
+
+        public StoredFile(String fileName, long size, String sha256, String contentType, String fieldName) {
+            this.fileName = fileName;
+            this.size = size;
+            this.sha256 = sha256;
+            this.contentType = contentType;
+            this.fieldName = fieldName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFieldName() {
+            return fieldName;
         }
+    }
 
-        // Extract file extension
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : defaultExtension;
+    public static String sha256Of(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        // Generate unique filename
-        String fileName = UUID.randomUUID() + extension;
-        Path filePath = Paths.get(uploadDir, fileName);
+    // Only a plain extension is kept from the client's file name, anything else gets the default
+    public static String extensionOf(String originalFilename, String defaultExtension) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return defaultExtension;
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        return EXTENSION.matcher(extension).matches() ? extension.toLowerCase() : defaultExtension;
+    }
 
-        // Save file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    // Stored files live two directory levels down, named after the start of their random or hash name
+    // (ab/cd/abcd1234....png): 65536 directories keep each one small with millions of files
+    public static String shardedPath(String fileName) {
+        if (!SHARD_PREFIX.matcher(fileName).matches()) {
+            return fileName;
+        }
+        return fileName.substring(0, 2) + "/" + fileName.substring(2, 4) + "/" + fileName;
+    }
 
-        return fileName;
+    // Key of a path in a directory of the media store (see MediaStore); "" is the top level
+    public static String storageKey(String dir, String path) {
+        return dir.isEmpty() ? path : dir + "/" + path;
     }
 
+    // fileUrl may be a URL, a sharded path or a bare file name: only the name is used
     public static void deleteFile(String fileUrl, String baseDir) {
         try {
             String fileName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
-            Path filePath = Paths.get(baseDir).resolve(fileName).normalize();
-            Files.deleteIfExists(filePath);
+            Files.deleteIfExists(Paths.get(baseDir).resolve(shardedPath(fileName)).normalize());
+            Files.deleteIfExists(Paths.get(baseDir).resolve(fileName).normalize());
         } catch (IOException e) {
         }
     }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,16 @@
+package blog.util;
+
+import java.util.Locale;
+
+// Login identifiers are matched case-insensitively against users.username_lower / users.email_lower
+public class IdentifierUtils {
+
+    public static String normalize(String identifier) {
+        return identifier == null ? null : identifier.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Usernames are letters and digits only, so an '@' can only mean an email
+    public static boolean isEmail(String identifier) {
+        return identifier.indexOf('@') >= 0;
+    }
+}
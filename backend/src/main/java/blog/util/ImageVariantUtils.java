@@ -0,0 +1,48 @@
+package blog.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Names and URLs of the resized copies made by ImageDerivativeService. A derivative is named after its original
+// file and stored in the same shard: posts/derived/ab/cd/<name>-feed.jpg for posts/ab/cd/<name>.png. The variants that exist are recorded as a comma
+// separated list of names, "" when the image has none (format not supported).
+public class ImageVariantUtils {
+
+    // Post images fit in a box with this long edge, without upscaling
+    public static final Map<String, Integer> POST_VARIANTS = variants("thumb", 320, "feed", 720, "full", 1600);
+    // Profile images are cropped to a square of this side
+    public static final Map<String, Integer> AVATAR_VARIANTS = variants("small", 48, "medium", 128, "large", 256);
+
+    public static final String POST_DIR = "posts/derived";
+    public static final String AVATAR_DIR = "avatars";
+
+    public static String derivativeName(String originalUrl, String variant) {
+        String fileName = originalUrl.substring(originalUrl.lastIndexOf('/') + 1);
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return stem + "-" + variant + ".jpg";
+    }
+
+    // Variant name -> URL of the recorded variants, empty while they are not generated yet
+    public static Map<String, String> toUrls(String originalUrl, String variants, String dir) {
+        if (originalUrl == null || variants == null || variants.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String variant : variants.split(",")) {
+            String name = derivativeName(originalUrl, variant);
+            urls.put(variant, "/files/" + dir + "/" + FileStorageUtils.shardedPath(name));
+        }
+        return urls;
+    }
+
+    private static Map<String, Integer> variants(String small, int smallSize, String medium, int mediumSize,
+            String large, int largeSize) {
+        Map<String, Integer> variants = new LinkedHashMap<>();
+        variants.put(small, smallSize);
+        variants.put(medium, mediumSize);
+        variants.put(large, largeSize);
+        return Collections.unmodifiableMap(variants);
+    }
+}
@@ -0,0 +1,16 @@
+package blog.util;
+
+import blog.entity.NotificationType;
+
+public class NotificationMessageFormatter {
+
+    // Text of a notification that stands for eventCount coalesced events, the creator being the latest one.
+    // Every type needs its own text: the switch has no default, so a new type does not compile without one.
+    public static String formatMessage(NotificationType type, String creatorUsername, int eventCount) {
+        return switch (type) {
+            case NEW_POST -> eventCount <= 1
+                    ? creatorUsername + " created a new post"
+                    : eventCount + " new posts, the latest from " + creatorUsername;
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package blog.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+
+import blog.Config.FileStorageConfig;
+import blog.storage.LocalMediaStore;
+
+// Range, If-Range and multipart/byteranges handling, on a 100-byte file read from disk and from the memory cache
+class MediaFileServletTest {
+
+    private static final byte[] CONTENT = new byte[100];
+
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) ('a' + i % 26);
+        }
+    }
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalMediaStore mediaStore;
+
+    @BeforeEach
+    void storeFile() throws Exception {
+        Files.createDirectories(uploadDir.resolve("posts"));
+        Files.write(uploadDir.resolve("posts/file.bin"), CONTENT);
+        FileStorageConfig config = new FileStorageConfig();
+        config.setUploadDir(uploadDir.toString());
+        mediaStore = new LocalMediaStore(config);
+    }
+
+    @Test
+    void servesWholeFileWithoutRange() throws Exception {
+        MockHttpServletResponse response = get(null, null, false);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesSingleRange() throws Exception {
+        for (boolean cached : new boolean[] { false, true }) {
+            MockHttpServletResponse response = get("bytes=10-19", null, cached);
+
+            assertEquals(206, response.getStatus());
+            assertEquals("bytes 10-19/100", response.getHeader("Content-Range"));
+            assertArrayEquals(slice(10, 19), response.getContentAsByteArray());
+        }
+    }
+
+    @Test
+    void servesOpenAndSuffixRanges() throws Exception {
+        MockHttpServletResponse open = get("bytes=90-", null, false);
+        assertEquals("bytes 90-99/100", open.getHeader("Content-Range"));
+        assertArrayEquals(slice(90, 99), open.getContentAsByteArray());
+
+        MockHttpServletResponse suffix = get("bytes=-5", null, false);
+        assertEquals("bytes 95-99/100", suffix.getHeader("Content-Range"));
+        assertArrayEquals(slice(95, 99), suffix.getContentAsByteArray());
+
+        MockHttpServletResponse beyondEnd = get("bytes=50-1000", null, false);
+        assertEquals("bytes 50-99/100", beyondEnd.getHeader("Content-Range"));
+    }
+
+    @Test
+    void rejectsRangeOutsideFile() throws Exception {
+        MockHttpServletResponse response = get("bytes=100-200", null, false);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void ignoresMalformedRange() throws Exception {
+        MockHttpServletResponse response = get("bytes=20-10", null, false);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void coalescesOverlappingAndAdjacentRanges() throws Exception {
+        MockHttpServletResponse response = get("bytes=20-29,0-9,5-19", null, false);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-29/100", response.getHeader("Content-Range"));
+        assertArrayEquals(slice(0, 29), response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesWholeFileWhenRangesAskForMoreThanIt() throws Exception {
+        String header = "bytes=" + String.join(",", Collections.nCopies(16, "0-"));
+        MockHttpServletResponse response = get(header, null, false);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(100, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void servesWholeFileForTooManyRanges() throws Exception {
+        StringBuilder header = new StringBuilder("bytes=");
+        for (int i = 0; i < 17; i++) {
+            header.append(i > 0 ? "," : "").append(i * 5).append('-').append(i * 5 + 1);
+        }
+        MockHttpServletResponse response = get(header.toString(), null, false);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesDisjointRangesAsMultipart() throws Exception {
+        for (boolean cached : new boolean[] { false, true }) {
+            MockHttpServletResponse response = get("bytes=50-59,0-9", null, cached);
+
+            assertEquals(206, response.getStatus());
+            assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+            String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+            String body = response.getContentAsString(StandardCharsets.US_ASCII);
+            assertEquals(response.getContentLengthLong(), response.getContentAsByteArray().length);
+
+            String first = "Content-Range: bytes 0-9/100\r\n\r\n" + new String(slice(0, 9), StandardCharsets.US_ASCII);
+            String second = "Content-Range: bytes 50-59/100\r\n\r\n"
+                    + new String(slice(50, 59), StandardCharsets.US_ASCII);
+            assertTrue(body.indexOf(first) >= 0 && body.indexOf(first) < body.indexOf(second));
+            assertTrue(body.endsWith("\r\n--" + boundary + "--\r\n"));
+        }
+    }
+
+    @Test
+    void honorsIfRange() throws Exception {
+        String etag = get(null, null, false).getHeader("ETag");
+
+        MockHttpServletResponse current = get("bytes=0-9", etag, false);
+        assertEquals(206, current.getStatus());
+
+        MockHttpServletResponse outdated = get("bytes=0-9", "\"outdated\"", false);
+        assertEquals(200, outdated.getStatus());
+        assertArrayEquals(CONTENT, outdated.getContentAsByteArray());
+    }
+
+    // cached: whether the servlet may keep the file in memory
+    private MockHttpServletResponse get(String range, String ifRange, boolean cached) throws Exception {
+        MediaFileServlet servlet = new MediaFileServlet(mediaStore, 1024, cached ? 1024 : 0, 30000);
+        servlet.init(new MockServletConfig());
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/posts/file.bin");
+        request.setPathInfo("/posts/file.bin");
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        if (ifRange != null) {
+            request.addHeader("If-Range", ifRange);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.service(request, response);
+        return response;
+    }
+
+    private static byte[] slice(int start, int end) {
+        return Arrays.copyOfRange(CONTENT, start, end + 1);
+    }
+}
@@ -0,0 +1,83 @@
+package blog.security;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import blog.entity.Role;
+import blog.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+// Per-request cost of authenticating a JWT: the former path (two parses, two key derivations), a single
+// parse with the shared parser, and a hot token served by the verified-token cache.
+// Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+//     "-Dexec.args=-cp %classpath blog.security.JwtUtilsBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "65eb26c055f1db06ca30ee63aa222eb85202f183699e520b4b230f5d5a62d804";
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils(SECRET, 86400000, 10000);
+
+        User user = new User();
+        user.setId(1);
+        user.setUsername("benchuser");
+        user.setRole(Role.USER);
+        token = jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean formerTwoParses() {
+        // getUsernameFromJwt followed by validateToken, each with its own key and parser
+        String username = Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(token).getBody()
+                .getSubject();
+        Date expiration = Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(token).getBody()
+                .getExpiration();
+        return username != null && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return jwtUtils.parseClaims(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser cachedToken() {
+        return jwtUtils.getAuthenticatedUser(token);
+    }
+
+    private static Key key() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtUtilsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
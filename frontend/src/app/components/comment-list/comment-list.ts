@@ -76,6 +76,10 @@ export class CommentList {
     return UserHelpers.getFullName(comment.user);
   }
 
+  getAvatar(comment: Comment): string | undefined {
+    return UserHelpers.avatarUrl(comment.user, 'small');
+  }
+
   formatDate(dateString: string): string {
     return DateFormatter.formatRelativeTime(dateString);
   }
@@ -65,6 +65,7 @@ export class Navbar implements OnInit {
   }
 
   onLogout(): void {
+    this.notificationService.disconnectStream();
     this.authService.logout();
   }
 
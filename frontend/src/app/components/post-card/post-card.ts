@@ -3,7 +3,7 @@ import { MatDialog } from '@angular/material/dialog';
 import { PostService } from '../../core/services/postService';
 import { LikeService } from '../../core/services/likeService';
 import { AuthService } from '../../core/services/auth';
-import { Post } from '../../core/models/post';
+import { Media, Post } from '../../core/models/post';
 import { Router } from '@angular/router';
 import { MatCardModule } from '@angular/material/card';
 import { MatIconModule } from '@angular/material/icon';
@@ -18,6 +18,7 @@ import { ReportedType } from '../../core/models/report';
 import { DateFormatter } from '../../core/utils/date-formatter';
 import { StringHelpers } from '../../core/utils/string-helpers';
 import { UserHelpers } from '../../core/utils/user-helpers';
+import { MediaHelpers } from '../../core/utils/media-helpers';
 
 @Component({
   selector: 'app-post-card',
@@ -55,7 +56,11 @@ export class PostCard {
   }
 
   profilePic(): string | undefined {
-    return this.post.creator.profileImgUrl;
+    return UserHelpers.avatarUrl(this.post.creator, 'small');
+  }
+
+  feedImage(media: Media): string {
+    return MediaHelpers.imageUrl(media, 'feed');
   }
 
   getTruncatedText(text: string, maxLength: number = 50): string {
@@ -2,6 +2,7 @@ import { Component, Input, Output, EventEmitter } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { MatIconModule } from '@angular/material/icon';
 import { User } from '../../core/models/user';
+import { UserHelpers } from '../../core/utils/user-helpers';
 
 @Component({
   selector: 'app-user-card',
@@ -14,6 +15,10 @@ export class UserCard {
   @Input() user!: User;
   @Output() userClick = new EventEmitter<User>();
 
+  avatar(): string | undefined {
+    return UserHelpers.avatarUrl(this.user);
+  }
+
   onUserClick() {
     this.userClick.emit(this.user);
   }
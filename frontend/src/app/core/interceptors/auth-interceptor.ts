@@ -1,37 +1,61 @@
-import { HttpInterceptorFn } from '@angular/common/http';
+import { HttpErrorResponse, HttpInterceptorFn, HttpRequest } from '@angular/common/http';
 import { inject } from '@angular/core';
 import { Router } from '@angular/router';
-import { catchError, throwError } from 'rxjs';
+import { catchError, finalize, Observable, shareReplay, switchMap, throwError } from 'rxjs';
+import { AuthService } from '../services/auth';
+import { AuthResponse } from '../models/auth';
+
+// Refresh call shared by every request that fails while it is in flight
+let refreshInFlight: Observable<AuthResponse> | null = null;
+
+const withToken = (req: HttpRequest<unknown>, token: string | null) =>
+  token ? req.clone({ setHeaders: { Authorization: `Bearer ${token}` } }) : req;
 
 export const authInterceptor: HttpInterceptorFn = (req, next) => {
   const router = inject(Router);
+  const authService = inject(AuthService);
 
   const token = localStorage.getItem("Token");
 
-  const isAuthEndpoint = req.url.includes('/auth/login') || req.url.includes('/auth/register');
+  const isAuthEndpoint = req.url.includes('/auth/login') || req.url.includes('/auth/register')
+    || req.url.includes('/auth/refresh');
 
-  let authReq = req;
-  if (token && !isAuthEndpoint) {
-    authReq = req.clone({
-      setHeaders: {
-        Authorization: `Bearer ${token}`
-      }
-    })
-  }
+  const authReq = isAuthEndpoint ? req : withToken(req, token);
+
+  const expireSession = (error: HttpErrorResponse) => {
+    authService.clearTokens();
+    const message = error.error?.message || 'Your session has expired. Please log in again.';
+    router.navigate(['/auth/login'], {
+      state: { message }
+    });
+  };
 
   return next(authReq).pipe(
     catchError((error) => {
-      if (error.status === 401 && !isAuthEndpoint) {
-        localStorage.removeItem("Token");
-        const message = error.error?.message || 'Your session has expired. Please log in again.';
-        router.navigate(['/auth/login'], {
-          state: { message }
-        });
+      if (error.status === 401 && !isAuthEndpoint && !req.url.includes('/auth/logout')) {
+        if (!localStorage.getItem("RefreshToken")) {
+          expireSession(error);
+          return throwError(() => error);
+        }
+        // Access token expired or revoked: renew it once and replay the request
+        if (!refreshInFlight) {
+          refreshInFlight = authService.refresh().pipe(
+            finalize(() => refreshInFlight = null),
+            shareReplay(1)
+          );
+        }
+        return refreshInFlight.pipe(
+          catchError((refreshError) => {
+            expireSession(error);
+            return throwError(() => refreshError);
+          }),
+          switchMap((response) => next(withToken(req, response.token)))
+        );
       }
 
       if (error.status === 403) {
         // User is banned, logout and redirect to login
-        localStorage.removeItem("Token");
+        authService.clearTokens();
         router.navigate(['/auth/login'], {
           state: { isBannedMessage: error.error?.message || 'Your account has been banned. Please contact support.' }
         });
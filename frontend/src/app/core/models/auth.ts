@@ -2,9 +2,14 @@ import { User } from "./user";
 
 export interface AuthResponse {
     token: string;
+    refreshToken: string;
     userData: User;
 }
 
+export interface RefreshTokenRequest {
+    refreshToken: string;
+}
+
 export interface LoginRequest {
     identifier: string;
     password: string;
@@ -7,6 +7,7 @@ export interface Comment {
         firstName: string;
         lastName: string;
         profileImgUrl?: string;
+        avatarVariants?: Record<string, string>;
     };
     createdAt: string;
     updatedAt: string;
@@ -22,4 +23,5 @@ export interface PagedCommentResponse {
     currentPage: number;
     totalPages: number;
     hasMore: boolean;
+    nextCursor: string | null;
 }
@@ -4,9 +4,16 @@ export interface Notification {
   message: string;
   relatedPostId?: number;
   isRead: boolean;
+  eventCount: number;
   createdAt: string;
   creator: {
     id: number;
     username: string;
   };
 }
+
+export interface PagedNotificationResponse {
+  content: Notification[];
+  hasMore: boolean;
+  nextCursor: string | null;
+}
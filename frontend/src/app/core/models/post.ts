@@ -1,5 +1,3 @@
-import { Comment } from './comment';
-
 export interface Post {
     id: number;
     title: string;
@@ -11,10 +9,10 @@ export interface Post {
         firstName: string;
         lastName: string;
         profileImgUrl?: string;
+        avatarVariants?: Record<string, string>;
         role?: string;
     };
     media: Media[];
-    comments?: Comment[];
     likesCount: number;
     commentsCount: number;
     isHidden: boolean;
@@ -28,6 +26,7 @@ export interface Media {
     id: number;
     url: string;
     type: 'IMAGE' | 'VIDEO';
+    variants?: Record<string, string>;
 }
 
 export interface CreatePostRequest {
@@ -6,6 +6,7 @@ export interface User {
   email: string;
   bio?: string;
   profileImgUrl: string;
+  avatarVariants?: Record<string, string>;
   role: UserRole;
   followersCount?: number;
   followingCount?: number;
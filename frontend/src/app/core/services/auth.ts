@@ -1,5 +1,5 @@
 import { inject, Injectable, signal } from '@angular/core';
-import { AuthResponse, LoginRequest, RegisterRequest } from '../models/auth';
+import { AuthResponse, LoginRequest, RefreshTokenRequest, RegisterRequest } from '../models/auth';
 import { Observable, tap } from 'rxjs';
 import { HttpClient } from '@angular/common/http';
 import { environment } from '../../../environments/environment';
@@ -11,8 +11,11 @@ import { User } from '../models/user';
 })
 export class AuthService {
   private TOKEN_KEY = 'Token';
+  private REFRESH_TOKEN_KEY = 'RefreshToken';
   private loginUrl = `${environment.apiUrl}/auth/login`;
   private registerUrl = `${environment.apiUrl}/auth/register`;
+  private refreshUrl = `${environment.apiUrl}/auth/refresh`;
+  private logoutUrl = `${environment.apiUrl}/auth/logout`;
 
   private http = inject(HttpClient);
   private router = inject(Router);
@@ -23,7 +26,7 @@ export class AuthService {
   register(registerData: RegisterRequest): Observable<AuthResponse> {
     return this.http.post<AuthResponse>(`${this.registerUrl}`, registerData).pipe(
       tap((response: AuthResponse) => {
-        localStorage.setItem(this.TOKEN_KEY, response.token);
+        this.storeTokens(response);
         this.currentUser.set(response.userData);
       })
     );
@@ -32,23 +35,47 @@ export class AuthService {
   login(loginData: LoginRequest): Observable<AuthResponse> {
     return this.http.post<AuthResponse>(`${this.loginUrl}`, loginData).pipe(
       tap((response: AuthResponse) => {
-        localStorage.setItem(this.TOKEN_KEY, response.token);
+        this.storeTokens(response);
         this.currentUser.set(response.userData);
       })
     );
   }
 
+  // Exchange the refresh token for a new pair, the old refresh token stops working
+  refresh(): Observable<AuthResponse> {
+    const body: RefreshTokenRequest = { refreshToken: localStorage.getItem(this.REFRESH_TOKEN_KEY) ?? '' };
+    return this.http.post<AuthResponse>(this.refreshUrl, body).pipe(
+      tap((response: AuthResponse) => this.storeTokens(response))
+    );
+  }
+
   logout(): void {
-    localStorage.removeItem(this.TOKEN_KEY);
+    const refreshToken = localStorage.getItem(this.REFRESH_TOKEN_KEY);
+    if (refreshToken) {
+      // Revoke the session server side, the local logout does not wait for it
+      this.http.post(this.logoutUrl, { refreshToken }).subscribe({ error: () => {} });
+    }
+    this.clearTokens();
     this.currentUser.set(null);
     this.router.navigate(['/auth/login']);
   }
 
+  clearTokens(): void {
+    localStorage.removeItem(this.TOKEN_KEY);
+    localStorage.removeItem(this.REFRESH_TOKEN_KEY);
+  }
+
   isAuthenticated(): boolean {
     const token = localStorage.getItem(this.TOKEN_KEY);
     if (!token) return false;
 
-    return !this.isTokenExpired(token);
+    // An expired access token is renewed on the next request while a refresh token is kept
+    return !this.isTokenExpired(token) || localStorage.getItem(this.REFRESH_TOKEN_KEY) !== null;
+  }
+
+  private storeTokens(response: AuthResponse): void {
+    localStorage.setItem(this.TOKEN_KEY, response.token);
+    localStorage.setItem(this.REFRESH_TOKEN_KEY, response.refreshToken);
   }
 
   isAdmin(): boolean {
@@ -16,10 +16,10 @@ export class CommentService {
     return this.http.post<Comment>(`${this.apiUrl}/posts/${postId}/comments`, request);
   }
 
-  // Get paginated comments for a specific post
-  getCommentsByPostId(postId: number, page: number = 0, size: number = 5): Observable<PagedCommentResponse> {
+  // Get comments for a specific post with cursor pagination, an empty cursor loads the newest comments
+  getCommentsByPostId(postId: number, cursor: string = '', size: number = 5): Observable<PagedCommentResponse> {
     const url = `${this.apiUrl}/posts/${postId}/comments`;
-    const params = { page: page.toString(), size: size.toString() };
+    const params = { cursor, size: size.toString() };
 
     return this.http.get<PagedCommentResponse>(url, { params });
   }
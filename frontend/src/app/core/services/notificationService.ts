@@ -2,7 +2,7 @@ import { HttpClient } from '@angular/common/http';
 import { inject, Injectable, signal } from '@angular/core';
 import { Observable, tap } from 'rxjs';
 import { environment } from '../../../environments/environment';
-import { Notification } from '../models/notification';
+import { Notification, PagedNotificationResponse } from '../models/notification';
 
 @Injectable({
   providedIn: 'root'
@@ -14,17 +14,36 @@ export class NotificationService {
   notifications = signal<Notification[]>([]);
   unreadCount = signal(0);
   isLoading = signal(false);
+  hasMore = signal(false);
+  private nextCursor: string | null = null;
 
-  getNotifications(unreadOnly: boolean = false): Observable<Notification[]> {
+  private streamController: AbortController | null = null;
+
+  // First page of notifications, the next ones are loaded with loadMoreNotifications
+  getNotifications(unreadOnly: boolean = false): Observable<PagedNotificationResponse> {
     this.isLoading.set(true);
-    return this.http.get<Notification[]>(`${this.apiUrl}?unreadOnly=${unreadOnly}`).pipe(
-      tap(notifications => {
-        this.notifications.set(notifications);
+    return this.http.get<PagedNotificationResponse>(`${this.apiUrl}?unreadOnly=${unreadOnly}&cursor=`).pipe(
+      tap(response => {
+        this.notifications.set(response.content);
+        this.hasMore.set(response.hasMore);
+        this.nextCursor = response.nextCursor;
         this.isLoading.set(false);
       })
     );
   }
 
+  loadMoreNotifications(): void {
+    if (!this.nextCursor) return;
+
+    this.http.get<PagedNotificationResponse>(`${this.apiUrl}`, { params: { cursor: this.nextCursor } }).subscribe(
+      response => {
+        this.notifications.update(notifications => [...notifications, ...response.content]);
+        this.hasMore.set(response.hasMore);
+        this.nextCursor = response.nextCursor;
+      }
+    );
+  }
+
   getUnreadCount(): Observable<number> {
     return this.http.get<number>(`${this.apiUrl}/unread-count`).pipe(
       tap(count => this.unreadCount.set(count))
@@ -57,8 +76,73 @@ export class NotificationService {
     );
   }
 
+  // The unread count comes from the stream, no polling needed
   loadNotifications(): void {
     this.getNotifications(false).subscribe();
-    this.getUnreadCount().subscribe();
+    this.connectStream();
+  }
+
+  // Listen to the server-sent notification stream (fetch is used because EventSource cannot send the token)
+  connectStream(): void {
+    const token = localStorage.getItem('Token');
+    if (!token || this.streamController) return;
+
+    const controller = new AbortController();
+    this.streamController = controller;
+
+    fetch(`${this.apiUrl}/stream`, {
+      headers: { Authorization: `Bearer ${token}`, Accept: 'text/event-stream' },
+      signal: controller.signal
+    })
+      .then(async response => {
+        if (!response.ok || !response.body) {
+          throw new Error(`Notification stream failed: ${response.status}`);
+        }
+        const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = '';
+        while (true) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += value;
+          const events = buffer.split('\n\n');
+          buffer = events.pop() ?? '';
+          events.forEach(event => this.handleStreamEvent(event));
+        }
+      })
+      .catch(() => {})
+      .finally(() => {
+        if (this.streamController !== controller) return;
+        this.streamController = null;
+        // Reconnect when the server closes the stream or the network drops
+        setTimeout(() => this.connectStream(), 5000);
+      });
+  }
+
+  disconnectStream(): void {
+    this.streamController?.abort();
+    this.streamController = null;
+  }
+
+  private handleStreamEvent(rawEvent: string): void {
+    let name = 'message';
+    let data = '';
+    for (const line of rawEvent.split('\n')) {
+      if (line.startsWith('event:')) {
+        name = line.slice(6).trim();
+      } else if (line.startsWith('data:')) {
+        data += line.slice(5);
+      }
+    }
+    if (!data) return;
+
+    if (name === 'unread-count') {
+      this.unreadCount.set(Number(data));
+    } else if (name === 'notification') {
+      const notification = JSON.parse(data) as Notification;
+      // A coalesced notification comes back with the id of its group: update it in place
+      this.notifications.update(notifications => notifications.some(n => n.id === notification.id)
+        ? notifications.map(n => n.id === notification.id ? notification : n)
+        : [notification, ...notifications]);
+    }
   }
 }
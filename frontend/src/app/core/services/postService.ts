@@ -10,6 +10,7 @@ export interface PagedPostResponse {
   totalPages: number;
   totalElements: number;
   hasMore: boolean;
+  nextCursor: string | null;
 }
 
 @Injectable({
@@ -24,20 +25,23 @@ export class PostService {
     return this.http.post<Post>(this.apiUrl, formData);
   }
 
-  //Get all Posts with pagination (for infinite scroll)
-  getAllPosts(page: number = 0, size: number = 9): Observable<PagedPostResponse> {
+  //Get all Posts with cursor pagination (for infinite scroll), an empty cursor loads the newest posts
+  getAllPosts(cursor: string = '', size: number = 9): Observable<PagedPostResponse> {
     const params = new HttpParams()
-      .set('page', page.toString())
+      .set('cursor', cursor)
       .set('size', size.toString());
 
     return this.http.get<PagedPostResponse>(`${this.apiUrl}`, { params });
   }
 
-  //Get Posts Created by a specific user
-  getPostsByUser(userId: number, page: number = 0, size: number = 10): Observable<PagedPostResponse> {
-    const params = new HttpParams()
+  //Get Posts Created by a specific user, by page or by cursor when one is given
+  getPostsByUser(userId: number, page: number = 0, size: number = 10, cursor?: string): Observable<PagedPostResponse> {
+    let params = new HttpParams()
       .set('page', page.toString())
       .set('size', size.toString());
+    if (cursor !== undefined) {
+      params = params.set('cursor', cursor);
+    }
 
     return this.http.get<PagedPostResponse>(`${this.apiUrl}/user/${userId}`, {params});
   }
@@ -0,0 +1,8 @@
+import { Media } from '../models/post';
+
+export class MediaHelpers {
+  // Resized copy of an image when the server has made it, the uploaded file otherwise
+  static imageUrl(media: Media, variant: 'thumb' | 'feed' | 'full'): string {
+    return media.variants?.[variant] ?? media.url;
+  }
+}
@@ -2,4 +2,12 @@ export class UserHelpers {
   static getFullName(user: { firstName: string; lastName: string }): string {
     return `${user.firstName} ${user.lastName}`.trim();
   }
+
+  // Resized avatar when the server has made it, the uploaded picture otherwise
+  static avatarUrl(
+    user: { profileImgUrl?: string; avatarVariants?: Record<string, string> },
+    size: 'small' | 'medium' | 'large' = 'medium'
+  ): string | undefined {
+    return user.avatarVariants?.[size] ?? user.profileImgUrl;
+  }
 }
@@ -31,7 +31,7 @@ export class Home implements OnInit {
   isLoading = signal(true);
   isLoadingMore = signal(false);
   hasMore = signal(true);
-  currentPage = signal(0);
+  nextCursor = signal<string | null>(null);
   pageSize = 9;
   errorMessage = signal<string | null>(null);
 
@@ -43,13 +43,13 @@ export class Home implements OnInit {
   loadPosts(): void {
     this.isLoading.set(true);
     this.errorMessage.set(null);
-    this.currentPage.set(0);
+    this.nextCursor.set(null);
 
-    this.postService.getAllPosts(0, this.pageSize).subscribe({
+    this.postService.getAllPosts('', this.pageSize).subscribe({
       next: (response) => {
         this.posts.set(response.content);
         this.hasMore.set(response.hasMore);
-        this.currentPage.set(response.currentPage);
+        this.nextCursor.set(response.nextCursor);
         this.isLoading.set(false);
       },
       error: (error: HttpErrorResponse) => {
@@ -61,19 +61,19 @@ export class Home implements OnInit {
   }
 
   loadMorePosts(): void {
-    if (!this.hasMore() || this.isLoadingMore()) {
+    const cursor = this.nextCursor();
+    if (!this.hasMore() || !cursor || this.isLoadingMore()) {
       return;
     }
 
     this.isLoadingMore.set(true);
-    const nextPage = this.currentPage() + 1;
 
-    this.postService.getAllPosts(nextPage, this.pageSize).subscribe({
+    this.postService.getAllPosts(cursor, this.pageSize).subscribe({
       next: (response) => {
         // Append new posts to existing posts
         this.posts.update(current => [...current, ...response.content]);
         this.hasMore.set(response.hasMore);
-        this.currentPage.set(response.currentPage);
+        this.nextCursor.set(response.nextCursor);
         this.isLoadingMore.set(false);
       },
       error: (error: HttpErrorResponse) => {
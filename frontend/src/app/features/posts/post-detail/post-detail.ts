@@ -7,7 +7,7 @@ import { MatButtonModule } from '@angular/material/button';
 import { MatProgressSpinnerModule } from '@angular/material/progress-spinner';
 import { MatDividerModule } from '@angular/material/divider';
 import { HttpErrorResponse } from '@angular/common/http';
-import { Post } from '../../../core/models/post';
+import { Media, Post } from '../../../core/models/post';
 import { Comment } from '../../../core/models/comment';
 import { PostService } from '../../../core/services/postService';
 import { CommentService } from '../../../core/services/commentService';
@@ -23,6 +23,7 @@ import { CommentInput } from '../../../components/comment-input/comment-input';
 import { CommentList } from '../../../components/comment-list/comment-list';
 import { DateFormatter } from '../../../core/utils/date-formatter';
 import { UserHelpers } from '../../../core/utils/user-helpers';
+import { MediaHelpers } from '../../../core/utils/media-helpers';
 import { ErrorState, ErrorConfig } from '../../../components/error-state/error-state';
 import { ErrorHandler } from '../../../core/utils/error-handler';
 
@@ -67,7 +68,7 @@ export class PostDetail implements OnInit {
   isSubmittingComment = signal(false);
   isLoadingMoreComments = signal(false);
   hasMoreComments = signal(true);
-  currentPage = signal(0);
+  nextCursor = signal<string | null>(null);
   totalComments = signal(0);
 
   isLiking = signal(false);
@@ -145,31 +146,31 @@ export class PostDetail implements OnInit {
 
   loadComments(postId: number): void {
     this.isLoadingComments.set(true);
-    this.currentPage.set(0);
+    this.nextCursor.set(null);
     this.comments.set([]);
-    this.fetchComments(postId, 0);
+    this.fetchComments(postId, '');
   }
 
   loadMoreComments(): void {
-    if (!this.postId || this.isLoadingMoreComments() || !this.hasMoreComments()) {
+    const cursor = this.nextCursor();
+    if (!this.postId || !cursor || this.isLoadingMoreComments() || !this.hasMoreComments()) {
       return;
     }
 
     this.isLoadingMoreComments.set(true);
-    const nextPage = this.currentPage() + 1;
-    this.fetchComments(this.postId, nextPage);
+    this.fetchComments(this.postId, cursor);
 
   }
 
 
-  private fetchComments(postId: number, page: number): void {
-    this.commentService.getCommentsByPostId(postId, page, 5).subscribe({
+  private fetchComments(postId: number, cursor: string): void {
+    const firstPage = cursor === '';
+    this.commentService.getCommentsByPostId(postId, cursor, 5).subscribe({
       next: (response) => {
         const newComments = response?.comments || [];
         const hasMore = response?.hasMore || false;
-        const currentPageNum = response?.currentPage ?? page;
 
-        if (page === 0) {
+        if (firstPage) {
           //first 5
           this.comments.set(newComments);
           this.isLoadingComments.set(false);
@@ -180,12 +181,12 @@ export class PostDetail implements OnInit {
         }
 
         this.hasMoreComments.set(hasMore);
-        this.currentPage.set(currentPageNum);
+        this.nextCursor.set(response?.nextCursor ?? null);
       },
       error: (error: HttpErrorResponse) => {
         console.error('[fetchComments] ERROR:', error);
 
-        if (page === 0) {
+        if (firstPage) {
           this.comments.set([]);
           this.isLoadingComments.set(false);
         } else {
@@ -313,7 +314,16 @@ export class PostDetail implements OnInit {
   }
 
   profilePic(): string | undefined {
-    return this.post()?.creator.profileImgUrl;
+    const creator = this.post()?.creator;
+    return creator ? UserHelpers.avatarUrl(creator, 'small') : undefined;
+  }
+
+  feedImage(media: Media): string {
+    return MediaHelpers.imageUrl(media, 'feed');
+  }
+
+  fullImage(media: Media): string {
+    return MediaHelpers.imageUrl(media, 'full');
   }
 
   navigateToProfile(event: Event): void {
@@ -23,6 +23,7 @@ import { Post } from '../../core/models/post';
 import { InfiniteScroll } from '../../components/infinite-scroll/infinite-scroll';
 import { ErrorState, ErrorConfig } from '../../components/error-state/error-state';
 import { ErrorHandler } from '../../core/utils/error-handler';
+import { UserHelpers } from '../../core/utils/user-helpers';
 
 @Component({
   selector: 'app-profile',
@@ -57,7 +58,7 @@ export class UserProfile implements OnInit {
   errorConfig = signal<ErrorConfig | null>(null);
   isLoadingMore = signal(false);
   hasMore = signal(true);
-  currentPage = signal(0);
+  nextCursor = signal<string | null>(null);
   pageSize = 10;
 
   // Profile data
@@ -129,7 +130,7 @@ export class UserProfile implements OnInit {
   loadUserPosts(userId: number | undefined) {
     this.isLoading.set(true);
     this.errorMessage.set(null);
-    this.currentPage.set(0);
+    this.nextCursor.set(null);
 
     if (userId === undefined) {
       this.isLoading.set(false);
@@ -142,7 +143,7 @@ export class UserProfile implements OnInit {
         this.posts.set(response.content);
         this.postsCount.set(response.totalElements);
         this.hasMore.set(response.hasMore);
-        this.currentPage.set(response.currentPage);
+        this.nextCursor.set(response.nextCursor);
         this.isLoading.set(false);
       },
       error: (error: HttpErrorResponse) => {
@@ -173,6 +174,11 @@ export class UserProfile implements OnInit {
     }
   }
 
+  profileAvatar(): string | undefined {
+    const user = this.profileUser();
+    return user ? UserHelpers.avatarUrl(user, 'large') : undefined;
+  }
+
   onEditProfile(): void {
     this.isEditing.set(true);
   }
@@ -241,17 +247,18 @@ export class UserProfile implements OnInit {
 
   loadMorePosts(): void {
     const userId = this.profileUser()?.id;
-    if (!userId || this.isLoadingMore() || !this.hasMore()) return;
+    const cursor = this.nextCursor();
+    if (!userId || !cursor || this.isLoadingMore() || !this.hasMore()) return;
 
     this.isLoadingMore.set(true);
-    const nextPage = this.currentPage() + 1;
 
-    this.postService.getPostsByUser(userId, nextPage, this.pageSize).subscribe({
+    // First page is loaded by offset for the post count, the following ones by cursor
+    this.postService.getPostsByUser(userId, 0, this.pageSize, cursor).subscribe({
       next: (response) => {
         const currentPosts = this.posts();
         this.posts.set([...currentPosts, ...response.content]);
         this.hasMore.set(response.hasMore);
-        this.currentPage.set(response.currentPage);
+        this.nextCursor.set(response.nextCursor);
         this.isLoadingMore.set(false);
       },
       error: (error: HttpErrorResponse) => {